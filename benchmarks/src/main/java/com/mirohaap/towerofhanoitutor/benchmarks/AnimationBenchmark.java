@@ -0,0 +1,158 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.DragDropUtil;
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.OptimalSolution;
+import com.mirohaap.towerofhanoitutor.Repository;
+import com.mirohaap.towerofhanoitutor.Ring;
+import javafx.animation.Animation;
+import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.layout.StackPane;
+import javafx.util.Duration;
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of starting a ring animation per move through the real board:
+ * {@link DragDropUtil#animateMove} reconfigures the ring's pooled transition, cuts short the one
+ * still running on that ring, and counts the animation in {@code AnimationRepository}. The
+ * {@code newTransitionPerMove} baseline animates the same rings the way moves used to be animated:
+ * a new transition, duration and finish handler per move, tracked in a list. Run with
+ * {@code -prof gc} and compare {@code gc.alloc.rate.norm} between the two to see the allocation
+ * saved per move; it counts the FX thread as well.
+ * <p>
+ * Animations must be started on the FX thread, so each invocation hands a batch of
+ * {@value #MOVES_PER_INVOCATION} moves of the optimal solution to it and waits for them; the
+ * hand-off is shared by the whole batch. Starts the JavaFX toolkit, so it needs a display (or a
+ * virtual one such as Xvfb).
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnimationBenchmark {
+    private static final int RING_COUNT = 7;
+    private static final int MOVES_PER_INVOCATION = 1024;
+
+    @Param({"100", "varying"})
+    private String interval;
+
+    private DragDropUtil board;
+    private Move[] moves;
+    private int nextMove;
+    private final MutableBoolean reenable = new MutableBoolean(false);
+    private Runnable batch, baselineBatch;
+    private List<Ring> rings;
+    private final TranslateTransition[] baselineRunning = new TranslateTransition[RING_COUNT]; // Last baseline transition of each ring
+    private final List<TranslateTransition> baselineTracked = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        try {
+            Platform.startup(() -> {
+            });
+        } catch (IllegalStateException e) {
+            // The toolkit is already running.
+        }
+        moves = new Move[(int) OptimalSolution.totalMoves(RING_COUNT)];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = OptimalSolution.moveAt(RING_COUNT, i);
+        }
+        boolean fixedInterval = !interval.equals("varying");
+        double millis = fixedInterval ? Double.parseDouble(interval) : 0;
+        batch = () -> {
+            for (int i = 0; i < MOVES_PER_INVOCATION; i++) {
+                // A varying interval forces a new duration per move, like dragging the speed slider during autoplay.
+                board.animateMove(moves[nextMove], fixedInterval ? millis : 50 + (nextMove & 63), reenable);
+                nextMove = nextMove + 1 == moves.length ? 0 : nextMove + 1;
+            }
+        };
+        baselineBatch = () -> {
+            for (int i = 0; i < MOVES_PER_INVOCATION; i++) {
+                animateWithNewTransition(moves[nextMove], fixedInterval ? millis : 50 + (nextMove & 63));
+                nextMove = nextMove + 1 == moves.length ? 0 : nextMove + 1;
+            }
+        };
+        runOnFxThread(() -> {
+            Repository.getInstance().init(RING_COUNT);
+            AnchorPane gamePane = new AnchorPane();
+            rings = new ArrayList<>();
+            for (int i = 1; i <= RING_COUNT; i++) {
+                StackPane ringPane = new StackPane();
+                gamePane.getChildren().add(ringPane);
+                rings.add(new Ring(ringPane, i));
+            }
+            board = new DragDropUtil(gamePane, rings);
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES_PER_INVOCATION)
+    public int animateMove() throws InterruptedException {
+        runOnFxThread(batch);
+        return nextMove;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES_PER_INVOCATION)
+    public int newTransitionPerMove() throws InterruptedException {
+        runOnFxThread(baselineBatch);
+        return nextMove;
+    }
+
+    /**
+     * Animates a move the way it was done before transitions were pooled. Like the pooled path,
+     * the transition still running on the ring is cut short first, so both keep the same number
+     * of animations in flight.
+     */
+    private void animateWithNewTransition(Move move, double interval) {
+        int index = move.getN() - 1;
+        TranslateTransition previous = baselineRunning[index];
+        if (previous != null && previous.getStatus() == Animation.Status.RUNNING) {
+            previous.stop();
+            previous.getOnFinished().handle(null);
+        }
+        StackPane ringPane = rings.get(index).getVisualRing();
+        double destinationX = 150.0 * move.getTo(), destinationY = 29.0 * (nextMove & 7);
+        TranslateTransition transition = new TranslateTransition(Duration.millis(interval), ringPane);
+        transition.setToX(destinationX - ringPane.getLayoutX());
+        transition.setToY(destinationY - ringPane.getLayoutY());
+        transition.setOnFinished(new EventHandler<ActionEvent>() {
+            @Override
+            public void handle(ActionEvent event) {
+                ringPane.setTranslateX(0);
+                ringPane.setTranslateY(0);
+                ringPane.setLayoutX(destinationX);
+                ringPane.setLayoutY(destinationY);
+                baselineTracked.remove(transition);
+            }
+        });
+        baselineTracked.add(transition);
+        baselineRunning[index] = transition;
+        transition.play();
+    }
+
+    private static void runOnFxThread(Runnable task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.runLater(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+}
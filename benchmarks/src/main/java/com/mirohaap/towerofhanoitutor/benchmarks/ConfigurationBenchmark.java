@@ -0,0 +1,59 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.ConfigurationSolver;
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.TowerState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ConfigurationSolver} on random pairs of configurations. Every query walks the
+ * rings a fixed number of times, so the time per query should grow linearly with the ring count,
+ * up to the full 64 rings, however long the solution is.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConfigurationBenchmark {
+    private static final int PAIRS = 1024;
+
+    @Param({"8", "16", "32", "64"})
+    private int ringCount;
+
+    private final TowerState[] starts = new TowerState[PAIRS];
+    private final TowerState[] targets = new TowerState[PAIRS];
+    private int pair;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int[] towers = new int[ringCount];
+        for (int i = 0; i < PAIRS; i++) {
+            starts[i] = new TowerState(ringCount);
+            targets[i] = new TowerState(ringCount);
+            for (TowerState state : new TowerState[]{starts[i], targets[i]}) {
+                for (int ring = 0; ring < ringCount; ring++) {
+                    towers[ring] = random.nextInt(TowerState.TOWER_COUNT) + 1;
+                }
+                state.load(towers);
+            }
+        }
+    }
+
+    @Benchmark
+    public long moveCount() {
+        pair = (pair + 1) & (PAIRS - 1);
+        return ConfigurationSolver.moveCount(starts[pair], targets[pair]);
+    }
+
+    @Benchmark
+    public Move nextMove() {
+        pair = (pair + 1) & (PAIRS - 1);
+        return ConfigurationSolver.nextMove(starts[pair], targets[pair]);
+    }
+}
@@ -0,0 +1,68 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.EngineListener;
+import com.mirohaap.towerofhanoitutor.HanoiEngine;
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.OptimalSolution;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures headless replay through {@link HanoiEngine}: every operation validates, applies,
+ * scores and emits one move of a pre-recorded optimal game, starting a new game after a win.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    @Param({"3", "10", "20"})
+    private int ringCount;
+
+    private int[] rings, froms, tos;
+    private int index;
+    private HanoiEngine engine;
+    private Blackhole blackhole;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        this.blackhole = blackhole;
+        int total = (int) OptimalSolution.totalMoves(ringCount);
+        rings = new int[total];
+        froms = new int[total];
+        tos = new int[total];
+        for (int i = 0; i < total; i++) {
+            Move move = OptimalSolution.moveAt(ringCount, i);
+            rings[i] = move.getN();
+            froms[i] = move.getFrom();
+            tos[i] = move.getTo();
+        }
+        newGame();
+    }
+
+    private void newGame() {
+        engine = new HanoiEngine(ringCount);
+        engine.addListener(new EngineListener() {
+            @Override
+            public void moveApplied(int ring, int from, int to, boolean optimal) {
+                blackhole.consume(optimal);
+            }
+        });
+        index = 0;
+    }
+
+    @Benchmark
+    public boolean submit() {
+        if (index == rings.length) {
+            newGame();
+        }
+        boolean applied = engine.submit(rings[index], froms[index], tos[index]);
+        index++;
+        return applied;
+    }
+}
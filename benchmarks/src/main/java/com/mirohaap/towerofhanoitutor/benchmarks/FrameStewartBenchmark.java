@@ -0,0 +1,46 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.FrameStewartSolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link FrameStewartSolver} on multi-peg games. Looking up a move walks the split
+ * tables once, so it should take the same few nanoseconds per ring for any index; generating the
+ * whole solution writes one {@code int} per move, spread over the cores by fork/join. Four pegs
+ * and 40 rings is the case that has to solve in milliseconds.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameStewartBenchmark {
+
+    @Param({"4:40", "4:64", "5:64", "8:64"})
+    private String game;
+
+    private int towerCount, ringCount;
+    private long totalMoves, index;
+
+    @Setup
+    public void setUp() {
+        String[] parts = game.split(":");
+        towerCount = Integer.parseInt(parts[0]);
+        ringCount = Integer.parseInt(parts[1]);
+        totalMoves = FrameStewartSolver.totalMoves(towerCount, ringCount);
+    }
+
+    @Benchmark
+    public int moveAt() {
+        index = (index + 7919) % totalMoves;
+        return FrameStewartSolver.packedMoveAt(towerCount, ringCount, index);
+    }
+
+    @Benchmark
+    public int[] generate() {
+        return FrameStewartSolver.generate(towerCount, ringCount);
+    }
+}
@@ -0,0 +1,46 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.ParallelSolutionGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing the whole classic solution with {@link ParallelSolutionGenerator}, into a new
+ * array and into a reused off-heap buffer. The time per move should stay flat as the ring count
+ * grows, and should drop with the number of cores; run with
+ * {@code -jvmArgsAppend -Djava.util.concurrent.ForkJoinPool.common.parallelism=1} for the
+ * single-threaded baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class GeneratorBenchmark {
+
+    @Param({"16", "20", "24", "28"})
+    private int ringCount;
+
+    private IntBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        buffer = ByteBuffer.allocateDirect(((1 << ringCount) - 1) * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    @Benchmark
+    public int[] generate() {
+        return ParallelSolutionGenerator.generate(ringCount);
+    }
+
+    @Benchmark
+    public int generateDirect() {
+        buffer.clear();
+        return ParallelSolutionGenerator.generate(ringCount, 0, buffer);
+    }
+}
@@ -0,0 +1,32 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.Move;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Move#equals(Object)}, which the tutor calls on every validated move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    private final Move move = new Move(3, 1, 2);
+    private final Move same = new Move(3, 1, 2, true);
+    private final Move different = new Move(3, 1, 3);
+
+    @Benchmark
+    public boolean equalMoves() {
+        return move.equals(same);
+    }
+
+    @Benchmark
+    public boolean differentMoves() {
+        return move.equals(different);
+    }
+}
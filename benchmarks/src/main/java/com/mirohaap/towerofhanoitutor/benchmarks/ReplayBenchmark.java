@@ -0,0 +1,77 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.HanoiEngine;
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.OptimalSolution;
+import com.mirohaap.towerofhanoitutor.SessionRecorder;
+import com.mirohaap.towerofhanoitutor.SessionReplayer;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures headless replay of a recorded optimal game: {@code replay} streams the whole
+ * recording from its memory-mapped file into a fresh {@link HanoiEngine}; divide by the move
+ * count ({@code 2^ringCount - 1}) for the cost per move. {@code seek} jumps to a random move
+ * through the checkpoint index, and should cost the same for any ring count.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReplayBenchmark {
+
+    @Param({"10", "20"})
+    private int ringCount;
+
+    private Path recording;
+    private SessionReplayer seeker;
+    private final Random random = new Random(42);
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        recording = Files.createTempFile("replay-benchmark", SessionRecorder.EXTENSION);
+        long time = 0;
+        try (SessionRecorder recorder = new SessionRecorder(recording, ringCount, time)) {
+            for (long i = 0; i < OptimalSolution.totalMoves(ringCount); i++) {
+                Move move = OptimalSolution.moveAt(ringCount, i);
+                time += 250;
+                recorder.record(move.getN(), move.getFrom(), move.getTo(), true, true, time);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (seeker != null) {
+            seeker.close();
+        }
+        Files.deleteIfExists(recording);
+        Files.deleteIfExists(SessionRecorder.indexPathOf(recording));
+    }
+
+    @Benchmark
+    public boolean replay() throws IOException {
+        try (SessionReplayer replayer = new SessionReplayer(recording)) {
+            HanoiEngine engine = new HanoiEngine(replayer.getRingCount());
+            replayer.replayInto(engine);
+            return engine.isWon();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long seek() throws IOException {
+        if (seeker == null) {
+            seeker = new SessionReplayer(recording);
+        }
+        seeker.seek((long) (random.nextDouble() * seeker.getTotalRecords()));
+        return seeker.getState().getMask(0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.OptimalSolution;
+import com.mirohaap.towerofhanoitutor.Repository;
+import com.mirohaap.towerofhanoitutor.Tutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link Repository} paths that run on every move and every mouse-drag event:
+ * applying and logging a move with a listener attached, the tower queries, and optimality scoring.
+ * The board is parked a third of the way through the optimal solution so every tower holds rings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @Param({"3", "10", "20", "30"})
+    private int ringCount;
+
+    private Repository repository;
+    private int[] midGameState;
+    private Move nextMove, lastBestMove;
+    private int ring;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        repository = Repository.getInstance();
+        repository.init(ringCount);
+        repository.addListener(evt -> blackhole.consume(evt.getNewValue()));
+
+        long midGame = OptimalSolution.totalMoves(ringCount) / 3;
+        midGameState = OptimalSolution.stateAt(ringCount, midGame);
+        Tutor.getInstance().calculateMoves(ringCount);
+        Tutor.getInstance().seekTo(midGame);
+        nextMove = OptimalSolution.moveAt(ringCount, midGame).withValid(true);
+        lastBestMove = OptimalSolution.moveAt(ringCount, midGame - 1);
+    }
+
+    /**
+     * Starts each iteration from a fresh repository so the move log and optimality flags stay small.
+     */
+    @Setup(Level.Iteration)
+    public void resetRepository() {
+        repository.reset();
+        repository.init(ringCount);
+        repository.loadState(midGameState);
+    }
+
+    @Benchmark
+    public Move applyAndRevertMove() {
+        repository.applyMove(nextMove);
+        return repository.popLastValidMove();
+    }
+
+    @Benchmark
+    public int getTower() {
+        ring = ring % ringCount + 1;
+        return repository.getTower(ring);
+    }
+
+    @Benchmark
+    public boolean isTop() {
+        ring = ring % ringCount + 1;
+        return repository.isTop(ring);
+    }
+
+    @Benchmark
+    public int[] getTops() {
+        return repository.getTops();
+    }
+
+    @Benchmark
+    public void verifyOptimal() {
+        repository.verifyOptimal(lastBestMove);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mirohaap.towerofhanoitutor.benchmarks;
+
+import com.mirohaap.towerofhanoitutor.Move;
+import com.mirohaap.towerofhanoitutor.MoveOracle;
+import com.mirohaap.towerofhanoitutor.OptimalSolution;
+import com.mirohaap.towerofhanoitutor.TowerState;
+import com.mirohaap.towerofhanoitutor.Tutor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of preparing the optimal solution through {@link Tutor}, and of walking
+ * it through {@link MoveOracle} and {@link OptimalSolution}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SolverBenchmark {
+
+    @Param({"3", "10", "20", "30"})
+    private int ringCount;
+
+    private Tutor tutor;
+    private TowerState walk;
+    private long totalMoves;
+    private long index;
+
+    @Setup
+    public void setUp() {
+        tutor = Tutor.getInstance();
+        tutor.calculateMoves(ringCount);
+        totalMoves = OptimalSolution.totalMoves(ringCount);
+        walk = new TowerState(ringCount);
+    }
+
+    @Benchmark
+    public void calculateMoves() {
+        tutor.calculateMoves(ringCount);
+    }
+
+    @Benchmark
+    public Move nextMove() {
+        if (walk.isComplete(2)) {
+            walk.reset();
+        }
+        Move next = MoveOracle.nextMove(walk, 2);
+        walk.moveTop(next.getFrom() - 1, next.getTo() - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Move moveAt() {
+        index = (index + 7919) % totalMoves;
+        return OptimalSolution.moveAt(ringCount, index);
+    }
+
+    @Benchmark
+    public int[] stateAt() {
+        index = (index + 7919) % totalMoves;
+        return OptimalSolution.stateAt(ringCount, index);
+    }
+}
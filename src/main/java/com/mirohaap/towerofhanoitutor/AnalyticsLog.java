@@ -0,0 +1,258 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only binary store for analytics data. The log file holds a short fixed header followed
+ * by one fixed-size record per logged session, so logging a session is an O(1) append however long
+ * the history grows. Records are read on demand from a memory-mapped view of the tail of the file.
+ * <p>
+ * The running totals live in a small companion file ({@code <log>.totals}) that is never modified
+ * in place: it is written to a temporary file, forced to disk and atomically renamed over the old
+ * one, and records how many log records it accounts for. Together with the append-only records this
+ * makes the log crash-safe. A crash can at worst leave a torn final record, which is truncated on
+ * the next open; if the totals file is lost, or is older than the last record, the totals are
+ * recovered from the last record.
+ * </p>
+ * <p>
+ * Writes are only forced to disk on {@link #flush()}, {@link #writeTotals(long, long, long)} and
+ * {@link #close()}, so callers control how appends are batched.
+ * </p>
+ */
+public class AnalyticsLog implements Closeable {
+    private static final int MAGIC = 0x484E414C; // "HNAL"
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_SIZE = 24;
+    private static final int TOTALS_SIZE = 36;
+
+    private final FileChannel channel;
+    private final Path totalsPath;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final ByteBuffer totals = ByteBuffer.allocate(TOTALS_SIZE);
+    private long optimalMoves, unoptimalMoves, elapsedSeconds;
+    private volatile int recordCount;
+
+    /**
+     * Opens the log at {@code path}, creating it if needed. Older data is migrated automatically:
+     * a text file in the old {@code analytics.txt} format is copied into a new log and renamed with a
+     * {@code .migrated} suffix.
+     *
+     * @param path       The binary log file.
+     * @param legacyPath The old text analytics file.
+     * @return The opened log.
+     * @throws IOException If the log cannot be read or created.
+     */
+    public static AnalyticsLog open(Path path, Path legacyPath) throws IOException {
+        boolean migrate = !Files.exists(path) && Files.exists(legacyPath);
+        AnalyticsLog log = new AnalyticsLog(path);
+        if (migrate) {
+            log.migrateFrom(legacyPath);
+            Files.move(legacyPath, legacyPath.resolveSibling(legacyPath.getFileName() + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        return log;
+    }
+
+    /**
+     * Opens a log file in the current format, writing the header if the file is new.
+     *
+     * @param path The log file.
+     * @throws IOException If the file is not an analytics log or cannot be read.
+     */
+    private AnalyticsLog(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.totalsPath = path.resolveSibling(path.getFileName() + ".totals");
+        if (channel.size() < HEADER_SIZE) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                channel.close();
+                throw new IOException("Not a version " + VERSION + " analytics log: " + path);
+            }
+        }
+
+        recordCount = (int) ((channel.size() - HEADER_SIZE) / RECORD_SIZE);
+        long validSize = HEADER_SIZE + (long) recordCount * RECORD_SIZE;
+        if (channel.size() > validSize) {
+            channel.truncate(validSize); // A crash tore the last record.
+        }
+        int accountedRecords = readTotals();
+        if (recordCount > 0 && accountedRecords < recordCount) {
+            readLastRecordTotals(); // The totals were not rewritten after the last records were appended.
+        }
+    }
+
+    /**
+     * Appends a record for a finished session. The record is not forced to disk until the next
+     * {@link #flush()}.
+     *
+     * @param timestamp      When the session was logged, in epoch milliseconds.
+     * @param optimalMoves   The total number of optimal moves across all sessions so far.
+     * @param unoptimalMoves The total number of unoptimal moves across all sessions so far.
+     * @param elapsedSeconds The total time played across all sessions so far.
+     * @throws IOException If the log cannot be written.
+     */
+    public void append(long timestamp, int optimalMoves, int unoptimalMoves, long elapsedSeconds) throws IOException {
+        record.clear();
+        record.putLong(timestamp).putInt(optimalMoves).putInt(unoptimalMoves).putLong(elapsedSeconds).flip();
+        channel.write(record, HEADER_SIZE + (long) recordCount * RECORD_SIZE);
+        recordCount++;
+    }
+
+    /**
+     * Durably replaces the running totals: pending records are forced to disk, then the totals and
+     * the record count are written to a temporary file, forced, and atomically renamed over the
+     * totals file. The totals must include every record appended so far.
+     *
+     * @param optimalMoves   The total number of optimal moves.
+     * @param unoptimalMoves The total number of unoptimal moves.
+     * @param elapsedSeconds The total time played, in seconds.
+     * @throws IOException If the totals cannot be written.
+     */
+    public void writeTotals(long optimalMoves, long unoptimalMoves, long elapsedSeconds) throws IOException {
+        flush();
+        totals.clear();
+        totals.putInt(MAGIC).putInt(VERSION).putInt(recordCount).putLong(optimalMoves).putLong(unoptimalMoves).putLong(elapsedSeconds).flip();
+        Path temp = totalsPath.resolveSibling(totalsPath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(totals);
+            out.force(true);
+        }
+        Files.move(temp, totalsPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        this.optimalMoves = optimalMoves;
+        this.unoptimalMoves = unoptimalMoves;
+        this.elapsedSeconds = elapsedSeconds;
+    }
+
+    /**
+     * Returns the optimal-move totals of the most recent records, oldest first. Only the tail of
+     * the file is mapped and read.
+     *
+     * @param max The maximum number of records to return.
+     * @return Up to {@code max} optimal-move totals.
+     * @throws IOException If the log cannot be read.
+     */
+    public int[] readOptimalMovesTail(int max) throws IOException {
+        int available = recordCount;
+        int count = Math.min(max, available);
+        int[] tail = new int[count];
+        if (count == 0) {
+            return tail;
+        }
+        long start = HEADER_SIZE + (long) (available - count) * RECORD_SIZE;
+        MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, start, (long) count * RECORD_SIZE);
+        for (int i = 0; i < count; i++) {
+            tail[i] = records.getInt(i * RECORD_SIZE + 8);
+        }
+        return tail;
+    }
+
+    /**
+     * Forces all appended records to disk.
+     *
+     * @throws IOException If the log cannot be synced.
+     */
+    public void flush() throws IOException {
+        channel.force(false);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            flush();
+            channel.close();
+        }
+    }
+
+    public long getOptimalMoves() {
+        return optimalMoves;
+    }
+
+    public long getUnoptimalMoves() {
+        return unoptimalMoves;
+    }
+
+    public long getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Reads the totals file.
+     *
+     * @return The number of records the totals account for, or -1 if no complete totals file was found.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    private int readTotals() throws IOException {
+        if (!Files.exists(totalsPath)) {
+            return -1;
+        }
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(totalsPath));
+        if (data.remaining() != TOTALS_SIZE || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            return -1;
+        }
+        int accountedRecords = data.getInt();
+        optimalMoves = data.getLong();
+        unoptimalMoves = data.getLong();
+        elapsedSeconds = data.getLong();
+        return accountedRecords;
+    }
+
+    /**
+     * Recovers the totals from the last record, which holds the totals as of when it was logged.
+     *
+     * @throws IOException If the record cannot be read.
+     */
+    private void readLastRecordTotals() throws IOException {
+        record.clear();
+        channel.read(record, HEADER_SIZE + (long) (recordCount - 1) * RECORD_SIZE);
+        record.flip();
+        record.getLong();
+        optimalMoves = record.getInt();
+        unoptimalMoves = record.getInt();
+        elapsedSeconds = record.getLong();
+    }
+
+    /**
+     * Copies the data of an old text analytics file: three lines of totals followed by one line of
+     * optimal-move totals per session. Migrated records carry no timestamp or unoptimal count.
+     *
+     * @param legacyPath The text file to migrate.
+     * @throws IOException If the text file cannot be read or the log cannot be written.
+     */
+    private void migrateFrom(Path legacyPath) throws IOException {
+        List<Long> values = new ArrayList<>();
+        for (String line : Files.readAllLines(legacyPath)) {
+            try {
+                values.add(Long.parseLong(line.trim()));
+            } catch (NumberFormatException e) {
+                break; // Stop at a torn or corrupt line and keep what came before it.
+            }
+        }
+        long optimal = values.size() > 0 ? values.get(0) : 0;
+        long unoptimal = values.size() > 1 ? values.get(1) : 0;
+        long elapsed = values.size() > 2 ? values.get(2) : 0;
+        for (int i = 3; i < values.size(); i++) {
+            append(0, values.get(i).intValue(), 0, elapsed);
+        }
+        writeTotals(optimal, unoptimal, elapsed);
+    }
+}
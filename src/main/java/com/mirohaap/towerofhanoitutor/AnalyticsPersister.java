@@ -0,0 +1,130 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes analytics to an {@link AnalyticsLog} on a background thread so the UI never waits on
+ * disk. Snapshots are queued without blocking; the writer takes whatever has piled up, appends
+ * the history records in order and durably writes only the latest totals, so a burst of
+ * snapshots costs a single sync. Closing the persister writes everything still queued.
+ */
+public class AnalyticsPersister implements Closeable {
+    private static final AnalyticsSnapshot SHUTDOWN = new AnalyticsSnapshot(false, 0, 0, 0, 0); // Matched by identity only
+
+    private final AnalyticsLog log;
+    private final BlockingQueue<AnalyticsSnapshot> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Starts the background writer for a log. The persister takes ownership of the log and closes it.
+     *
+     * @param log The log to write to.
+     */
+    public AnalyticsPersister(AnalyticsLog log) {
+        this.log = log;
+        writer = new Thread(this::writeLoop, "analytics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a snapshot to be written. Never blocks.
+     *
+     * @param snapshot The analytics to write.
+     */
+    public void submit(AnalyticsSnapshot snapshot) {
+        if (closed) {
+            throw new IllegalStateException("Analytics persister is closed");
+        }
+        queue.offer(snapshot);
+    }
+
+    /**
+     * Writes every queued snapshot, then stops the writer and closes the log.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.offer(SHUTDOWN);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Takes snapshots from the queue until shutdown, coalescing each burst into one write.
+     */
+    private void writeLoop() {
+        List<AnalyticsSnapshot> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(batch);
+            running = !removeShutdown(batch);
+            write(batch);
+            batch.clear();
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            System.out.println("Error closing analytics file.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the shutdown marker from a batch. Records compare by value, so the marker is found
+     * by identity: a real snapshot with the same values, such as that of a session without
+     * moves, must still be written.
+     *
+     * @param batch The snapshots taken from the queue.
+     * @return true if the batch held the shutdown marker.
+     */
+    private static boolean removeShutdown(List<AnalyticsSnapshot> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i) == SHUTDOWN) {
+                batch.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the batch's history records and durably writes its latest totals.
+     *
+     * @param batch The snapshots to write, oldest first.
+     */
+    private void write(List<AnalyticsSnapshot> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (AnalyticsSnapshot snapshot : batch) {
+                if (snapshot.newRecord()) {
+                    log.append(snapshot.timestamp(), snapshot.optimalMoves(), snapshot.unoptimalMoves(), snapshot.elapsedSeconds());
+                }
+            }
+            AnalyticsSnapshot latest = batch.getLast();
+            log.writeTotals(latest.optimalMoves(), latest.unoptimalMoves(), latest.elapsedSeconds());
+        } catch (IOException e) {
+            System.out.println("Error writing to analytics file.");
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * An immutable copy of the analytics totals, handed from the UI to the {@link AnalyticsPersister}.
+ *
+ * @param newRecord      Whether the snapshot also marks the end of a session and adds a history record.
+ * @param timestamp      When the snapshot was taken, in epoch milliseconds.
+ * @param optimalMoves   The total number of optimal moves across all sessions.
+ * @param unoptimalMoves The total number of unoptimal moves across all sessions.
+ * @param elapsedSeconds The total time played across all sessions, in seconds.
+ */
+public record AnalyticsSnapshot(boolean newRecord, long timestamp, int optimalMoves, int unoptimalMoves, long elapsedSeconds) {
+}
@@ -1,28 +1,27 @@
 package com.mirohaap.towerofhanoitutor;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.nio.file.Path;
 
 /**
  * Handles analytics related to game sessions, such as tracking optimal and unoptimal moves,
- * and calculating elapsed time. It supports reading from and writing to a file to preserve
- * analytics data across sessions.
+ * and calculating elapsed time. It preserves analytics data across sessions in an append-only
+ * {@link AnalyticsLog}, written in the background by an {@link AnalyticsPersister}.
  */
 public class AnalyticsUtil {
+    private static final Path LOG_PATH = Path.of("analytics.dat"), LEGACY_PATH = Path.of("analytics.txt");
+    private static final int HISTORY_LENGTH = 200; // Number of past sessions shown in the history chart.
     private int previousOptimalMoves = 0;
     private int previousUnoptimalMoves = 0;
-    private int previousElapsedTime = 0;
-    private static AnalyticsUtil _instance;
+    private long previousElapsedTime = 0;
+    private static volatile AnalyticsUtil created; // The instance once it has been created, for shutdown
     private int optimalMoves = 0;
     private int unoptimalMoves = 0;
     private long elapsedTime = 0;
     private boolean openedThisSession = false;
 
-    private ArrayList<Integer> optimalMovesOverTime = new ArrayList<>();
+    private AnalyticsLog log;
+    private AnalyticsPersister persister;
 
     /**
      * Private constructor for singleton pattern. It initializes the class by fetching
@@ -30,6 +29,7 @@ public class AnalyticsUtil {
      */
     private AnalyticsUtil() {
         fetchPreviousAnalyticData();
+        created = this;
     }
 
     /**
@@ -37,105 +37,74 @@ public class AnalyticsUtil {
      * current session's data.
      */
     private void calculateValues() {
-        optimalMoves = previousOptimalMoves + fetchNumberOfMovesFromCurrentSession(true);
-        unoptimalMoves = previousUnoptimalMoves + fetchNumberOfMovesFromCurrentSession(false);
+        optimalMoves = previousOptimalMoves + Repository.getInstance().getOptimalMoveCount();
+        unoptimalMoves = previousUnoptimalMoves + Repository.getInstance().getSuboptimalMoveCount();
         elapsedTime = previousElapsedTime + fetchInGameTimeFromCurrentSession();
     }
 
     /**
-     * Provides access to the singleton instance of AnalyticsUtil, creating it if necessary
-     * and recalculating values for the current session.
+     * Provides access to the singleton instance of AnalyticsUtil, creating it on first use
+     * without taking a lock, and recalculates values for the current session.
      *
      * @return The singleton instance of AnalyticsUtil.
      */
     public static AnalyticsUtil getInstance() {
-        if (_instance == null) {
-            _instance = new AnalyticsUtil();
-        }
-        _instance.calculateValues();
-        return _instance;
+        AnalyticsUtil instance = Holder.INSTANCE;
+        instance.calculateValues();
+        return instance;
+    }
+
+    private static final class Holder {
+        static final AnalyticsUtil INSTANCE = new AnalyticsUtil();
     }
 
     /**
-     * Fetches and loads analytics data from a previous session from the file.
-     * If the file does not exist, it creates a new file for future use.
+     * Loads the totals from previous sessions. They are read from the log's {@code .totals}
+     * companion file, or from the log's last record when that file is missing or older than the
+     * last record, so the load takes the same time however long the history is. An old {@code analytics.txt} file is migrated into the log the first time.
      */
     public void fetchPreviousAnalyticData() {
         try {
-            File data = new File("analytics.txt");
-            Scanner read = new Scanner(data);
-            if (read.hasNextLine()) {
-                previousOptimalMoves = Integer.parseInt(read.nextLine());
-            }
-            if (read.hasNextLine()) {
-                previousUnoptimalMoves = Integer.parseInt(read.nextLine());
-            }
-            if (read.hasNextLine()) {
-                previousElapsedTime = Integer.parseInt(read.nextLine());
-            }
-            while (read.hasNextLine()) {
-                String line = read.nextLine();
-                optimalMovesOverTime.add(Integer.parseInt(line));
-            }
-            read.close();
-        } catch (FileNotFoundException e) {
-            try {
-                File data = new File("analytics.txt");
-                data.createNewFile();
-            } catch (IOException e2) {
-                System.out.println("Error creating analytics file.");
-                e.printStackTrace();
-            }
+            log = AnalyticsLog.open(LOG_PATH, LEGACY_PATH);
+            previousOptimalMoves = (int) log.getOptimalMoves();
+            previousUnoptimalMoves = (int) log.getUnoptimalMoves();
+            previousElapsedTime = log.getElapsedSeconds();
+            persister = new AnalyticsPersister(log);
+            Runtime.getRuntime().addShutdownHook(new Thread(persister::close, "analytics-shutdown"));
+        } catch (IOException e) {
+            System.out.println("Error opening analytics file.");
+            e.printStackTrace();
         }
     }
 
     /**
-     * Writes the analytics data from the current session to the file.
-     * This includes optimal and unoptimal move counts, elapsed time, and the history of
-     * optimal moves over time.
+     * Queues the running totals, including the current session, to be written to the analytics
+     * log. Returns immediately; the write happens on the persister's thread.
      */
     public void writeAnalyticDataToFile() {
-        try {
-            FileWriter myWriter = new FileWriter("analytics.txt");
-            myWriter.write(Integer.toString(optimalMoves));
-            myWriter.write("\n");
-            myWriter.write(Integer.toString(unoptimalMoves));
-            myWriter.write("\n");
-            myWriter.write(Integer.toString((int) elapsedTime));
-            myWriter.write("\n");
-            for (Integer in : optimalMovesOverTime) {
-                myWriter.write(Integer.toString(in));
-                myWriter.write("\n");
-            }
-            myWriter.close();
-        } catch (IOException e) {
-            System.out.println("Error writing to analytics file.");
-            e.printStackTrace();
+        if (persister != null) {
+            persister.submit(new AnalyticsSnapshot(false, System.currentTimeMillis(), optimalMoves, unoptimalMoves, elapsedTime));
         }
     }
 
     /**
-     * Logs the number of optimal moves made during the current session.
+     * Queues the number of optimal moves made so far as a new record in the analytics history.
      */
     public void logOptimalMoves() {
-        optimalMovesOverTime.add(optimalMoves);
+        if (persister != null) {
+            persister.submit(new AnalyticsSnapshot(true, System.currentTimeMillis(), optimalMoves, unoptimalMoves, elapsedTime));
+        }
     }
 
     /**
-     * Fetches the number of moves from the current session, categorized by their optimality.
-     *
-     * @param moveOptimality True to fetch the count of optimal moves, false for unoptimal moves.
-     * @return The number of moves of the specified type made in the current session.
+     * Writes any queued analytics and closes the log, if analytics were ever used. Called when
+     * the application exits.
      */
-    private int fetchNumberOfMovesFromCurrentSession(boolean moveOptimality) {
-        int count = 0;
-        ArrayList<Boolean> moves = Repository.getInstance().getOptimalMoves();
-        for (Boolean optimal : moves) {
-            if (moveOptimality == optimal) {
-                ++count;
-            }
+    public static void shutdown() {
+        AnalyticsUtil instance = created;
+        if (instance != null && instance.persister != null) {
+            instance.persister.close();
         }
-        return count;
     }
 
     /**
@@ -166,13 +135,22 @@ public class AnalyticsUtil {
     }
 
     /**
-     * Gets the list of optimal moves made over time. Each entry represents the total
-     * number of optimal moves made by the end of a game session.
+     * Gets the optimal moves made over the most recent sessions. Each entry represents the total
+     * number of optimal moves made by the end of a game session, oldest first.
      *
-     * @return An ArrayList containing the total number of optimal moves at the end of each session.
+     * @return The total number of optimal moves at the end of each recent session.
      */
-    public ArrayList<Integer> getOptimalMovesOverTime() {
-        return optimalMovesOverTime;
+    public int[] getOptimalMovesOverTime() {
+        if (log == null) {
+            return new int[0];
+        }
+        try {
+            return log.readOptimalMovesTail(HISTORY_LENGTH);
+        } catch (IOException e) {
+            System.out.println("Error reading analytics file.");
+            e.printStackTrace();
+            return new int[0];
+        }
     }
 
     /**
@@ -3,18 +3,21 @@ package com.mirohaap.towerofhanoitutor;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.XYChart;
+import javafx.scene.control.Slider;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 
 /**
  * The AnalyticsWindow class manages the analytics UI for the Tower of Hanoi tutor application.
  * It displays statistics such as total optimal and unoptimal moves, total time spent, and a chart
- * showing the number of optimal moves over time.
+ * showing the number of optimal moves over time. A scrubber previews the board at any point of
+ * the most recently recorded game.
  */
 public class AnalyticsWindow {
 
@@ -24,6 +27,15 @@ public class AnalyticsWindow {
     @FXML
     LineChart<Number, Number> pastMovesChart;
 
+    @FXML
+    private Slider recordingSlider;
+    @FXML
+    private Text recordingText;
+    @FXML
+    private Canvas recordingCanvas;
+
+    private SessionReplayer recording; // The most recent recorded game, or null if there is none
+
     /**
      * Initializes the analytics window with data from the AnalyticsUtil class.
      * This method sets up text fields with the total counts of optimal and unoptimal moves,
@@ -41,14 +53,73 @@ public class AnalyticsWindow {
         timeText.setText("Total time spent: " + AnalyticsUtil.getInstance().getElapsedTime() + " seconds");
 
         XYChart.Series<Number, Number> series = new XYChart.Series<>();
-        ArrayList<Integer> moves = AnalyticsUtil.getInstance().getOptimalMovesOverTime();
+        int[] moves = AnalyticsUtil.getInstance().getOptimalMovesOverTime();
         series.setName("Number of Optimal Moves Over Time");
 
-        for (int i = 0; i < moves.size(); i++) {
-            series.getData().add(new XYChart.Data(i, moves.get(i)));
+        for (int i = 0; i < moves.length; i++) {
+            series.getData().add(new XYChart.Data(i, moves[i]));
         }
 
         pastMovesChart.getData().add(series);
+        initRecordingScrubber();
+    }
+
+    /**
+     * Opens the most recent recording and sets up the scrubber to preview it. Each position is
+     * restored from the recording's checkpoints, so scrubbing takes the same time anywhere.
+     */
+    private void initRecordingScrubber() {
+        try {
+            Path latest = SessionReplayer.findLatest(SessionRecorder.DEFAULT_DIRECTORY);
+            if (latest != null) {
+                recording = new SessionReplayer(latest);
+            }
+        } catch (IOException e) {
+            System.out.println("Error opening session recording.");
+            e.printStackTrace();
+        }
+        if (recording == null) {
+            recordingText.setText("No recorded games yet.");
+            recordingSlider.setDisable(true);
+            return;
+        }
+        recordingSlider.setMax(recording.getTotalRecords());
+        recordingSlider.valueProperty().addListener((observable, oldValue, newValue) -> showRecordingAt(newValue.longValue()));
+        showRecordingAt(0);
+    }
+
+    /**
+     * Shows the board of the most recent recording after a number of moves.
+     *
+     * @param move The number of recorded moves to show as made.
+     */
+    private void showRecordingAt(long move) {
+        try {
+            recording.seek(move);
+        } catch (IOException e) {
+            System.out.println("Error reading session recording.");
+            e.printStackTrace();
+            return;
+        }
+        long seconds = (recording.getTimeMillis() - recording.getStartMillis()) / 1000;
+        recordingText.setText("Last game: move " + recording.getRecordCount() + " of " + recording.getTotalRecords()
+                + ", " + seconds / 60 + ":" + String.format("%02d", seconds % 60) + " in");
+        CanvasBoardRenderer.drawState(recordingCanvas, recording.getState());
+    }
+
+    /**
+     * Releases the recording shown by the scrubber.
+     */
+    private void closeRecording() {
+        if (recording != null) {
+            try {
+                recording.close();
+            } catch (IOException e) {
+                System.out.println("Error closing session recording.");
+                e.printStackTrace();
+            }
+            recording = null;
+        }
     }
 
     /**
@@ -60,11 +131,15 @@ public class AnalyticsWindow {
     public void openWindow() throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(Window.class.getResource("analytics-view.fxml"));
         Scene scene = new Scene(fxmlLoader.load(), 700, 500);
+        AnalyticsWindow controller = fxmlLoader.getController();
         Stage secondStage = new Stage();
         secondStage.setTitle("Game Analytics");
         secondStage.setScene(scene);
         secondStage.setResizable(false);
-        secondStage.setOnCloseRequest(event -> handleCloseBehavior());
+        secondStage.setOnCloseRequest(event -> {
+            handleCloseBehavior();
+            controller.closeRecording();
+        });
         secondStage.show();
     }
 
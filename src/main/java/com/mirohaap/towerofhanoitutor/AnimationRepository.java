@@ -1,32 +1,33 @@
 package com.mirohaap.towerofhanoitutor;
 
-import javafx.animation.TranslateTransition;
-
+import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.ArrayList;
 
 /**
- * Manages animations for the Tower of Hanoi tutor application. This class keeps track of all
- * ongoing animations and notifies listeners when all animations have completed. It uses the
- * Singleton design pattern to ensure that there is only one instance of this class throughout
- * the application.
+ * Manages animations for the Tower of Hanoi tutor application. This class keeps track of how
+ * many animations are in flight and notifies listeners when all animations have completed. It
+ * uses the Singleton design pattern to ensure that there is only one instance of this class
+ * throughout the application.
+ * <p>
+ * Only a counter is kept, so starting and finishing an animation is O(1) and allocates nothing.
+ * Like the animations themselves, it must only be used from the FX thread.
+ * </p>
  */
 public class AnimationRepository {
-    private static AnimationRepository _instance;
-    private ArrayList<TranslateTransition> animations;
+    private static final System.Logger LOG = System.getLogger(AnimationRepository.class.getName());
+    private int runningCount; // Number of animations started and not yet finished
     private PropertyChangeSupport changes = new PropertyChangeSupport(this);
+    private final PropertyChangeEvent allAnimationsComplete = new PropertyChangeEvent(this, "all_animations_complete", null, null);
 
     /**
-     * Private constructor to prevent instantiation from outside this class. Initializes the
-     * animations list.
+     * Private constructor to prevent instantiation from outside this class.
      */
     private AnimationRepository() {
-        animations = new ArrayList<>();
     }
 
     /**
-     * Adds a PropertyChangeListener that will be notified of changes to the animation list,
+     * Adds a PropertyChangeListener that will be notified of changes to the running animations,
      * specifically when all animations have completed.
      *
      * @param listener The PropertyChangeListener to add.
@@ -41,44 +42,42 @@ public class AnimationRepository {
      * @return true if there are running animations, false otherwise.
      */
     public boolean animationsRunning() {
-        return !animations.isEmpty();
+        return runningCount > 0;
     }
 
     /**
-     * Removes an animation from the list of running animations. If removing this animation
-     * results in no more running animations, it will notify all registered listeners that all
-     * animations have completed.
-     *
-     * @param animation The animation to remove.
+     * Records that an animation has started.
      */
-    public void remove(TranslateTransition animation) {
-        animations.remove(animation);
-        System.out.println("removed");
-        if (animations.isEmpty()) {
-            System.out.println("firing");
-            changes.firePropertyChange("all_animations_complete", null, null);
-        }
+    public void animationStarted() {
+        runningCount++;
     }
 
     /**
-     * Adds an animation to the list of running animations.
-     *
-     * @param animation The animation to add.
+     * Records that an animation has finished. If no more animations are running, it will notify
+     * all registered listeners that all animations have completed.
      */
-    public void add(TranslateTransition animation) {
-        System.out.println("added animation");
-        animations.add(animation);
+    public void animationFinished() {
+        if (runningCount == 0) {
+            throw new IllegalStateException("More animations finished than were started");
+        }
+        runningCount--;
+        if (runningCount == 0) {
+            LOG.log(System.Logger.Level.TRACE, "All animations complete");
+            changes.firePropertyChange(allAnimationsComplete);
+        }
     }
 
     /**
-     * Provides access to the Singleton instance of the AnimationRepository, creating it if necessary.
+     * Provides access to the Singleton instance of the AnimationRepository, creating it on first
+     * use without taking a lock.
      *
      * @return The singleton instance of AnimationRepository.
      */
     public static AnimationRepository getInstance() {
-        if (_instance == null) {
-            _instance = new AnimationRepository();
-        }
-        return _instance;
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        static final AnimationRepository INSTANCE = new AnimationRepository();
     }
 }
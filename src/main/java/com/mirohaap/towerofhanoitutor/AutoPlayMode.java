@@ -0,0 +1,37 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * The ways {@link AutoPlayUtil} can play the rest of a game. Every mode but {@link #NORMAL} jumps
+ * through the solution with {@link Repository#jumpTo(int[])}, which clears the move history, so
+ * the moves it skips cannot be taken back and are not counted in the analytics.
+ */
+public enum AutoPlayMode {
+    /**
+     * One animated move per interval.
+     */
+    NORMAL("Normal"),
+    /**
+     * Jumps as far along the solution each frame as it takes to finish within a few seconds, placing the skipped rings
+     * directly and animating only the last move of the frame. Needs an indexed solution.
+     */
+    TURBO("Turbo"),
+    /**
+     * Jumps straight to the end of the solution, without animation. Needs an indexed solution.
+     */
+    INSTANT("Instant"),
+    /**
+     * Fits the rest of the game into a time budget by moving whole subtowers of the smallest rings as single animated steps.
+     */
+    BUDGETED("Fit to time");
+
+    private final String label;
+
+    AutoPlayMode(String label) {
+        this.label = label;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -1,51 +1,115 @@
 package com.mirohaap.towerofhanoitutor;
 
-import javafx.animation.Animation;
-import javafx.animation.TranslateTransition;
-import javafx.application.Platform;
+import javafx.animation.AnimationTimer;
 import org.apache.commons.lang3.mutable.MutableBoolean;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-
 /**
  * Facilitates the automatic playing of the Tower of Hanoi game by executing a series of moves
- * at a fixed interval. It manages the scheduling of moves and coordinates with other utility
+ * at a fixed interval. It manages the pacing of moves and coordinates with other utility
  * classes to animate these moves in the UI.
+ * <p>
+ * Playback is driven by the JavaFX pulse through an {@link AnimationTimer}, so every move is
+ * applied on the FX thread, and a new move is never started while the previous one is still
+ * animating. See {@link AutoPlayMode} for the available modes.
+ * </p>
  */
 public class AutoPlayUtil {
-    private DragDropUtil dragDropUtil;
-    private ScheduledExecutorService exec;
+    private static final double TURBO_SECONDS = 4; // Turbo paces itself to finish the remaining moves in about this long
+    private static final double TURBO_MIN_MOVES_PER_SECOND = 60; // But never plays slower than one move per frame
+    private static final double TURBO_ANIMATION_MILLIS = 40;
+
+    private BoardView board;
+    private AnimationTimer timer;
     private MutableBoolean reenable;
+    private AutoPlayMode mode;
+    private long intervalNanos;
+    private long nextMoveAt; // Pulse time of the next normal move
+    private long turboStartedAt, turboStartMove; // Pulse time and tutor position when turbo playback began
+    private double turboMovesPerSecond;
+    private long budgetMillis; // Time the rest of the game should take in budgeted mode
+    private int subtowerSize; // Number of smallest rings moved as one step in budgeted mode, 0 until chosen
 
     /**
-     * Constructs an AutoPlayUtil instance with a specified DragDropUtil.
+     * Constructs an AutoPlayUtil instance that plays on the given board.
      *
-     * @param dragDropUtil The DragDropUtil instance for managing drag and drop operations and animations.
+     * @param board The board that animates the moves and takes user input.
      */
-    public AutoPlayUtil(DragDropUtil dragDropUtil) {
-        this.dragDropUtil = dragDropUtil;
+    public AutoPlayUtil(BoardView board) {
+        this.board = board;
         reenable = new MutableBoolean(false);
     }
 
     /**
-     * Begins the automatic playing of the game, scheduling moves at the specified interval.
+     * Begins the automatic playing of the game with normal, animated moves.
      *
      * @param interval The interval in milliseconds between each move.
      */
     public void beginPlaying(int interval) {
-        dragDropUtil.disableUserInput();
-
-        exec = Executors.newSingleThreadScheduledExecutor();
-        Runnable makeNextMove = () -> {
-            Move next = Tutor.getInstance().getNextMove();
-            next.setValid(true);
-            Repository.getInstance().applyMove(next);
-            Platform.runLater(() -> dragDropUtil.animateMove(next, interval * 0.9, reenable));
-        };
+        beginPlaying(interval, AutoPlayMode.NORMAL);
+    }
+
+    /**
+     * Begins the automatic playing of the game in the given mode. Must be called on the FX thread.
+     *
+     * @param interval The interval in milliseconds between each move in normal mode.
+     * @param mode     How to play the remaining moves; use {@link #beginPlaying(int, long)} for budgeted playback.
+     */
+    public void beginPlaying(int interval, AutoPlayMode mode) {
+        if (mode == AutoPlayMode.BUDGETED) {
+            throw new IllegalArgumentException("Budgeted playback needs a time budget.");
+        }
+        start(interval, mode);
+    }
+
+    /**
+     * Begins playing the rest of the game within a time budget, one step per interval. The fewest
+     * rings that make it fit are grouped into a subtower that moves as a single animated step, so
+     * small games still show every move while huge ones show only the moves of their largest rings.
+     * The board is advanced by seeking, so it always ends in the exact state of the optimal solution.
+     *
+     * @param interval     The interval in milliseconds between each step.
+     * @param budgetMillis How long the rest of the game may take, in milliseconds.
+     */
+    public void beginPlaying(int interval, long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Time budget must be positive, got " + budgetMillis);
+        }
+        Tutor tutor = Tutor.getInstance();
+        if (!tutor.hasIndexedSolution() || tutor.getTowerCount() != TowerState.TOWER_COUNT) {
+            throw new IllegalStateException("Budgeted playback needs the classic three-tower game's indexed solution.");
+        }
+        this.budgetMillis = budgetMillis;
+        subtowerSize = 0;
+        start(interval, AutoPlayMode.BUDGETED);
+    }
 
-        exec.scheduleAtFixedRate(makeNextMove, 0, interval, TimeUnit.MILLISECONDS);
+    /**
+     * Starts playback in the given mode.
+     *
+     * @param interval The interval in milliseconds between each move or step.
+     * @param mode     How to play the remaining moves.
+     */
+    private void start(int interval, AutoPlayMode mode) {
+        if ((mode == AutoPlayMode.TURBO || mode == AutoPlayMode.INSTANT) && !Tutor.getInstance().hasIndexedSolution()) {
+            throw new IllegalStateException(mode + " playback seeks through the solution, so it needs an indexed one.");
+        }
+        board.disableUserInput();
+        this.mode = mode;
+        if (mode == AutoPlayMode.INSTANT) {
+            finishInstantly();
+            return;
+        }
+
+        intervalNanos = interval * 1_000_000L;
+        nextMoveAt = Long.MIN_VALUE;
+        turboStartedAt = -1;
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onPulse(now);
+            }
+        };
+        timer.start();
     }
 
     /**
@@ -53,11 +117,96 @@ public class AutoPlayUtil {
      * all animations have completed.
      */
     public void stopPlaying() {
-        exec.shutdown();
+        if (timer != null) {
+            timer.stop();
+        }
         if (AnimationRepository.getInstance().animationsRunning()) {
             reenable.setTrue();
         } else {
-            dragDropUtil.enableUserInput();
+            board.enableUserInput();
+        }
+    }
+
+    /**
+     * Plays whatever is due on this frame. Nothing is played while a move is still animating.
+     *
+     * @param now The pulse time in nanoseconds.
+     */
+    private void onPulse(long now) {
+        Tutor tutor = Tutor.getInstance();
+        if (!tutor.movesLeft()) {
+            timer.stop();
+            return;
+        }
+        if (AnimationRepository.getInstance().animationsRunning()) {
+            return;
+        }
+
+        if (mode != AutoPlayMode.TURBO) {
+            if (now < nextMoveAt) {
+                return;
+            }
+            nextMoveAt = now + intervalNanos;
+            if (mode == AutoPlayMode.NORMAL) {
+                board.animateMove(applyNextMove(), intervalNanos / 1e6 * 0.9, reenable);
+            } else {
+                playMacroStep();
+            }
+            return;
+        }
+
+        if (turboStartedAt < 0) {
+            turboStartedAt = now;
+            turboStartMove = tutor.getMoveNumber();
+            turboMovesPerSecond = Math.max(TURBO_MIN_MOVES_PER_SECOND, (tutor.getTotalMoves() - turboStartMove) / TURBO_SECONDS);
+        }
+        long due = turboStartMove + (long) Math.ceil((now - turboStartedAt) / 1e9 * turboMovesPerSecond);
+        long target = Math.max(tutor.getMoveNumber() + 1, Math.min(due, tutor.getTotalMoves()));
+        if (target - 1 > tutor.getMoveNumber()) {
+            // Every due move but the last is skipped: the rings are placed directly, and only the last move slides.
+            tutor.seekTo(target - 1);
+            Repository.getInstance().jumpTo(tutor.stateAt(target - 1));
+            board.syncToRepository();
+        }
+        board.animateMove(applyNextMove(), TURBO_ANIMATION_MILLIS, reenable);
+    }
+
+    /**
+     * Advances the board by one macro step of budgeted playback and animates every ring that moved.
+     * The subtower size is chosen on the first step, from the budget and the interval.
+     */
+    private void playMacroStep() {
+        Tutor tutor = Tutor.getInstance();
+        int numRings = tutor.getNumRings();
+        if (subtowerSize == 0) {
+            long intervalMillis = Math.max(1, intervalNanos / 1_000_000);
+            subtowerSize = OptimalSolution.subtowerSizeFor(numRings, tutor.getMoveNumber(), budgetMillis / intervalMillis);
         }
+        long target = OptimalSolution.nextMacroBoundary(numRings, tutor.getMoveNumber(), subtowerSize);
+        tutor.seekTo(target);
+        Repository.getInstance().jumpTo(tutor.stateAt(target));
+        board.animateToRepository(intervalNanos / 1e6 * 0.9, reenable);
+    }
+
+    /**
+     * Seeks straight to the end of the optimal solution and places the rings at their final positions.
+     */
+    private void finishInstantly() {
+        Tutor tutor = Tutor.getInstance();
+        long total = tutor.getTotalMoves();
+        tutor.seekTo(total);
+        Repository.getInstance().jumpTo(tutor.stateAt(total));
+        board.syncToRepository();
+    }
+
+    /**
+     * Applies the tutor's next move to the repository.
+     *
+     * @return The move that was applied.
+     */
+    private Move applyNextMove() {
+        Move next = Tutor.getInstance().getNextMove().withValid(true);
+        Repository.getInstance().applyMove(next);
+        return next;
     }
 }
@@ -0,0 +1,63 @@
+package com.mirohaap.towerofhanoitutor;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+
+/**
+ * The part of the game window that shows the towers and rings and takes the player's moves.
+ * Implementations always draw the state held by {@link Repository}: callers update the
+ * repository first and then ask the view to animate or jump to the new state.
+ */
+public interface BoardView {
+
+    /**
+     * Animates a move that has already been applied to the repository.
+     *
+     * @param move     the move to animate
+     * @param interval the duration of the animation in milliseconds
+     * @param reenable a mutable boolean indicating whether to re-enable user input after the animation
+     */
+    void animateMove(Move move, double interval, MutableBoolean reenable);
+
+    /**
+     * Animates every ring that is not where the repository state puts it, all at once.
+     *
+     * @param interval the duration of the animation in milliseconds
+     * @param reenable a mutable boolean indicating whether to re-enable user input after the animation
+     */
+    void animateToRepository(double interval, MutableBoolean reenable);
+
+    /**
+     * Places every ring directly at its position in the repository state, without animation.
+     */
+    void syncToRepository();
+
+    /**
+     * Disables user input.
+     */
+    void disableUserInput();
+
+    /**
+     * Enables user input.
+     */
+    void enableUserInput();
+
+    /**
+     * Allows or disallows user input.
+     *
+     * @param allow true to allow user input, false to disallow
+     */
+    default void allowUserInput(boolean allow) {
+        if (allow) {
+            enableUserInput();
+        } else {
+            disableUserInput();
+        }
+    }
+
+    /**
+     * Checks if the player has won the game on this board.
+     *
+     * @return true if the game has been won, false otherwise
+     */
+    boolean hasWon();
+}
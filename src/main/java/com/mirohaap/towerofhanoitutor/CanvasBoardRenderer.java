@@ -0,0 +1,500 @@
+package com.mirohaap.towerofhanoitutor;
+
+import javafx.animation.AnimationTimer;
+import javafx.animation.Interpolator;
+import javafx.geometry.VPos;
+import javafx.scene.Cursor;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.layout.AnchorPane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import org.apache.commons.lang3.mutable.MutableBoolean;
+
+/**
+ * Draws the board on a single {@link Canvas} instead of one scene node per ring, so the scene
+ * graph stays the same size whatever the ring count. Ring sizes and colours are computed from
+ * the ring count, and each frame only redraws the region that changed: the old and new bounds
+ * of the rings that moved. Nothing is allocated per frame.
+ * <p>
+ * Three towers stand where the view's own towers are; games on more towers spread them evenly
+ * across the board and narrow the rings and bases to fit.
+ * </p>
+ * <p>
+ * The player moves a ring by clicking the tower to take it from, then the tower to put it on.
+ * Like {@link DragDropUtil}, all drawing follows the state held by {@link Repository}.
+ * </p>
+ */
+public class CanvasBoardRenderer implements BoardView {
+    private static final double BOARD_WIDTH = 730, BOARD_HEIGHT = 380;
+    private static final double TOWER_BOTTOM_Y = 360, POLE_TOP_Y = 42, POLE_WIDTH = 25, BASE_WIDTH = 200, BASE_HEIGHT = 20;
+    private static final double MAX_RING_WIDTH = 190, MIN_RING_WIDTH = 20, MAX_RING_HEIGHT = 29;
+    private static final double MIN_LABELLED_HEIGHT = 12; // Rings thinner than this are drawn without their number
+    private static final Color BACKGROUND = Color.TRANSPARENT, TOWER_COLOR = Color.web("#dec441"), SELECTION_COLOR = Color.WHITE; // Stands out from the black outline and every ring hue
+
+    private final Canvas canvas;
+    private final GraphicsContext graphics;
+    private final int ringCount;
+    private final double[] towerCenters;
+    private final double widthScale; // Ring and base widths relative to the three-tower board
+    private final double ringHeight;
+    private final double[] ringWidths; // Indexed by ring number - 1, like every per-ring array
+    private final Color[] ringColors;
+    private final String[] labels;
+    private final double[] drawnX, drawnY; // Top-left corner of each ring as currently drawn
+    private final double[] fromX, fromY, toX, toY;
+    private final long[] animationStart, animationNanos; // Start is -1 until the first frame of the animation
+    private final boolean[] animating;
+    private final MutableBoolean[] reenableAfter;
+    private int animatingCount;
+    private double dirtyMinX, dirtyMinY, dirtyMaxX, dirtyMaxY;
+    private boolean dirty;
+    private int selectedTower = -1;
+    private boolean hasWon;
+    private boolean pulseRunning;
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            onPulse(now);
+        }
+    };
+
+    /**
+     * Adds a canvas board for three towers to the game pane, drawn from the current repository state.
+     *
+     * @param gamePane  the pane to draw the board in
+     * @param ringCount the number of rings in the game
+     */
+    public CanvasBoardRenderer(AnchorPane gamePane, int ringCount) {
+        this(gamePane, ringCount, TowerState.TOWER_COUNT);
+    }
+
+    /**
+     * Adds a canvas board to the game pane, drawn from the current repository state.
+     *
+     * @param gamePane   the pane to draw the board in
+     * @param ringCount  the number of rings in the game
+     * @param towerCount the number of towers in the game
+     */
+    public CanvasBoardRenderer(AnchorPane gamePane, int ringCount, int towerCount) {
+        this.ringCount = ringCount;
+        this.towerCenters = towerCentersFor(towerCount);
+        this.widthScale = widthScaleFor(towerCount);
+        this.ringHeight = ringHeightFor(ringCount);
+        ringWidths = new double[ringCount];
+        ringColors = new Color[ringCount];
+        labels = new String[ringCount];
+        for (int ring = 1; ring <= ringCount; ring++) {
+            ringWidths[ring - 1] = ringWidth(ring, ringCount) * widthScale;
+            ringColors[ring - 1] = ringColor(ring);
+            labels[ring - 1] = Integer.toString(ring);
+        }
+        drawnX = new double[ringCount];
+        drawnY = new double[ringCount];
+        fromX = new double[ringCount];
+        fromY = new double[ringCount];
+        toX = new double[ringCount];
+        toY = new double[ringCount];
+        animationStart = new long[ringCount];
+        animationNanos = new long[ringCount];
+        animating = new boolean[ringCount];
+        reenableAfter = new MutableBoolean[ringCount];
+
+        canvas = new Canvas(BOARD_WIDTH, BOARD_HEIGHT);
+        graphics = canvas.getGraphicsContext2D();
+        graphics.setTextAlign(TextAlignment.CENTER);
+        graphics.setTextBaseline(VPos.CENTER);
+        graphics.setFont(Font.font(Math.min(12, ringHeight - 2)));
+        canvas.setOnMouseClicked(this::onClick);
+        canvas.setCursor(Cursor.HAND);
+        gamePane.getChildren().add(canvas);
+        syncToRepository();
+    }
+
+    /**
+     * Draws a still picture of a tower state, scaled to fill a canvas. Used for previews outside
+     * the game window, such as scrubbing through a recording.
+     *
+     * @param canvas the canvas to draw on
+     * @param state  the state to draw
+     */
+    public static void drawState(Canvas canvas, TowerState state) {
+        GraphicsContext graphics = canvas.getGraphicsContext2D();
+        graphics.save();
+        graphics.clearRect(0, 0, canvas.getWidth(), canvas.getHeight());
+        graphics.scale(canvas.getWidth() / BOARD_WIDTH, canvas.getHeight() / BOARD_HEIGHT);
+        double[] centers = towerCentersFor(state.getTowerCount());
+        double scale = widthScaleFor(state.getTowerCount());
+        drawTowers(graphics, centers, scale);
+        int ringCount = state.getRingCount();
+        double height = ringHeightFor(ringCount);
+        for (int ring = 1; ring <= ringCount; ring++) {
+            double width = ringWidth(ring, ringCount) * scale;
+            graphics.setFill(ringColor(ring));
+            graphics.fillRoundRect(centers[state.getTowerOf(ring)] - width / 2,
+                    TOWER_BOTTOM_Y - (state.getHeight(ring) + 1) * height, width, height, 5, 5);
+        }
+        graphics.restore();
+    }
+
+    @Override
+    public void animateMove(Move move, double interval, MutableBoolean reenable) {
+        startAnimation(move.getN(), interval, reenable);
+    }
+
+    @Override
+    public void animateToRepository(double interval, MutableBoolean reenable) {
+        TowerState state = Repository.getInstance().getState();
+        for (int ring = 1; ring <= ringCount; ring++) {
+            if (drawnX[ring - 1] != targetX(state, ring) || drawnY[ring - 1] != targetY(state, ring)) {
+                startAnimation(ring, interval, reenable);
+            }
+        }
+    }
+
+    @Override
+    public void syncToRepository() {
+        TowerState state = Repository.getInstance().getState();
+        for (int ring = 1; ring <= ringCount; ring++) {
+            if (animating[ring - 1]) {
+                finishAnimation(ring);
+            }
+            drawnX[ring - 1] = targetX(state, ring);
+            drawnY[ring - 1] = targetY(state, ring);
+        }
+        selectedTower = -1;
+        markDirty(0, 0, BOARD_WIDTH, BOARD_HEIGHT);
+        requestPulse();
+    }
+
+    @Override
+    public void disableUserInput() {
+        canvas.setDisable(true);
+        select(-1);
+    }
+
+    @Override
+    public void enableUserInput() {
+        canvas.setDisable(false);
+    }
+
+    @Override
+    public boolean hasWon() {
+        return hasWon;
+    }
+
+    /**
+     * Handles a click on the board: the first click picks up the top ring of a tower, the second
+     * puts it on another tower. Clicking the same tower again puts the ring back down.
+     *
+     * @param event the mouse event
+     */
+    private void onClick(MouseEvent event) {
+        int tower = towerAt(event.getX());
+        TowerState state = Repository.getInstance().getState();
+        if (selectedTower == -1) {
+            if (state.getTop(tower) != -1) {
+                select(tower);
+            }
+        } else if (selectedTower == tower) {
+            select(-1);
+        } else {
+            int from = selectedTower;
+            select(-1);
+            attemptMove(state, from, tower);
+        }
+    }
+
+    /**
+     * Makes a move chosen by the player, with the same rules as a drag and drop: an illegal move
+     * is refused, and a legal move the tutor rejects is logged as invalid.
+     *
+     * @param state the current tower state
+     * @param from  the index of the source tower
+     * @param to    the index of the destination tower
+     */
+    private void attemptMove(TowerState state, int from, int to) {
+        if (!state.canMove(from, to)) {
+            SoundPlayer.getInstance().playWrong();
+            return;
+        }
+        int ring = state.getTop(from);
+        Move made = Tutor.getInstance().validateMove(new Move(ring, from + 1, to + 1));
+        Repository.getInstance().applyMove(made);
+        if (!made.isValid()) {
+            SoundPlayer.getInstance().playWrong();
+            return;
+        }
+        SoundPlayer.getInstance().playPlace();
+        markRingDirty(ring);
+        drawnX[ring - 1] = targetX(state, ring);
+        drawnY[ring - 1] = targetY(state, ring);
+        markRingDirty(ring);
+        requestPulse();
+        if (Repository.getInstance().checkWin()) {
+            disableUserInput();
+            hasWon = true;
+        }
+    }
+
+    /**
+     * Highlights the top ring of a tower, or clears the highlight.
+     *
+     * @param tower the index of the tower, or -1 for none
+     */
+    private void select(int tower) {
+        if (selectedTower == tower) {
+            return;
+        }
+        TowerState state = Repository.getInstance().getState();
+        if (selectedTower != -1 && state.getTop(selectedTower) != -1) {
+            markRingDirty(state.getTop(selectedTower));
+        }
+        selectedTower = tower;
+        if (tower != -1) {
+            markRingDirty(state.getTop(tower));
+        }
+        requestPulse();
+    }
+
+    /**
+     * Starts sliding a ring from where it is drawn to where the repository state puts it.
+     * A ring that is already animating is redirected from its current position.
+     *
+     * @param ring     the ring to move
+     * @param interval the duration of the animation in milliseconds
+     * @param reenable whether to re-enable user input when the animation finishes
+     */
+    private void startAnimation(int ring, double interval, MutableBoolean reenable) {
+        TowerState state = Repository.getInstance().getState();
+        int index = ring - 1;
+        fromX[index] = drawnX[index];
+        fromY[index] = drawnY[index];
+        toX[index] = targetX(state, ring);
+        toY[index] = targetY(state, ring);
+        animationStart[index] = -1;
+        animationNanos[index] = Math.max(1, (long) (interval * 1_000_000));
+        reenableAfter[index] = reenable;
+        if (!animating[index]) {
+            animating[index] = true;
+            animatingCount++;
+            AnimationRepository.getInstance().animationStarted();
+        }
+        requestPulse();
+    }
+
+    /**
+     * Places an animating ring at its destination and reports the animation as finished.
+     *
+     * @param ring the ring whose animation ends
+     */
+    private void finishAnimation(int ring) {
+        int index = ring - 1;
+        markRingDirty(ring);
+        drawnX[index] = toX[index];
+        drawnY[index] = toY[index];
+        markRingDirty(ring);
+        animating[index] = false;
+        animatingCount--;
+        SoundPlayer.getInstance().playPlace();
+        AnimationRepository.getInstance().animationFinished();
+        if (reenableAfter[index].isTrue()) {
+            enableUserInput();
+        }
+    }
+
+    /**
+     * Advances the running animations and redraws the dirty region. Stops the timer once there
+     * is nothing left to draw.
+     *
+     * @param now the pulse time in nanoseconds
+     */
+    private void onPulse(long now) {
+        for (int ring = 1; ring <= ringCount && animatingCount > 0; ring++) {
+            int index = ring - 1;
+            if (!animating[index]) {
+                continue;
+            }
+            if (animationStart[index] < 0) {
+                animationStart[index] = now;
+            }
+            double progress = Math.min(1, (now - animationStart[index]) / (double) animationNanos[index]);
+            if (progress >= 1) {
+                finishAnimation(ring);
+                continue;
+            }
+            double eased = Interpolator.EASE_BOTH.interpolate(0.0, 1.0, progress);
+            markRingDirty(ring);
+            drawnX[index] = fromX[index] + (toX[index] - fromX[index]) * eased;
+            drawnY[index] = fromY[index] + (toY[index] - fromY[index]) * eased;
+            markRingDirty(ring);
+        }
+        if (dirty) {
+            redrawDirtyRegion();
+        }
+        if (animatingCount == 0 && !dirty) {
+            pulse.stop();
+            pulseRunning = false;
+        }
+    }
+
+    /**
+     * Clears the dirty region and redraws everything that overlaps it: the towers, the resting
+     * rings, then the moving rings on top.
+     */
+    private void redrawDirtyRegion() {
+        double x = Math.max(0, dirtyMinX), y = Math.max(0, dirtyMinY);
+        double width = Math.min(BOARD_WIDTH, dirtyMaxX) - x, height = Math.min(BOARD_HEIGHT, dirtyMaxY) - y;
+        dirty = false;
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        graphics.save();
+        graphics.beginPath();
+        graphics.rect(x, y, width, height);
+        graphics.clip();
+        graphics.clearRect(x, y, width, height);
+        if (BACKGROUND.getOpacity() > 0) {
+            graphics.setFill(BACKGROUND);
+            graphics.fillRect(x, y, width, height);
+        }
+        drawTowers(graphics, towerCenters, widthScale);
+        for (int pass = 0; pass < 2; pass++) {
+            for (int ring = 1; ring <= ringCount; ring++) {
+                int index = ring - 1;
+                if (animating[index] == (pass == 1) && overlaps(index, x, y, width, height)) {
+                    drawRing(ring);
+                }
+            }
+        }
+        graphics.restore();
+    }
+
+    /**
+     * Draws one ring at its current position.
+     *
+     * @param ring the ring to draw
+     */
+    private void drawRing(int ring) {
+        int index = ring - 1;
+        double x = drawnX[index], y = drawnY[index], width = ringWidths[index];
+        graphics.setFill(ringColors[index]);
+        graphics.fillRoundRect(x, y, width, ringHeight, 5, 5);
+        boolean selected = selectedTower != -1 && Repository.getInstance().getState().getTop(selectedTower) == ring;
+        graphics.setStroke(selected ? SELECTION_COLOR : Color.BLACK);
+        graphics.setLineWidth(selected ? 3 : ringHeight >= 4 ? 1 : 0.5);
+        graphics.strokeRoundRect(x, y, width, ringHeight, 5, 5);
+        if (ringHeight >= MIN_LABELLED_HEIGHT) {
+            graphics.setFill(Color.BLACK);
+            graphics.fillText(labels[index], x + width / 2, y + ringHeight / 2);
+        }
+    }
+
+    private static void drawTowers(GraphicsContext graphics, double[] centers, double widthScale) {
+        double baseWidth = BASE_WIDTH * widthScale;
+        graphics.setFill(TOWER_COLOR);
+        for (double center : centers) {
+            graphics.fillRoundRect(center - POLE_WIDTH / 2, POLE_TOP_Y, POLE_WIDTH, TOWER_BOTTOM_Y - POLE_TOP_Y, 5, 5);
+            graphics.fillRoundRect(center - baseWidth / 2, TOWER_BOTTOM_Y, baseWidth, BASE_HEIGHT, 5, 5);
+        }
+    }
+
+    /**
+     * Returns where the towers stand: on the view's own towers for three, evenly spread otherwise.
+     *
+     * @param towerCount the number of towers
+     * @return the horizontal center of each tower
+     */
+    private static double[] towerCentersFor(int towerCount) {
+        if (towerCount == DragDropUtil.TOWER_CENTERS.length) {
+            return DragDropUtil.TOWER_CENTERS;
+        }
+        double[] centers = new double[towerCount];
+        for (int tower = 0; tower < towerCount; tower++) {
+            centers[tower] = BOARD_WIDTH * (tower + 0.5) / towerCount;
+        }
+        return centers;
+    }
+
+    private static double widthScaleFor(int towerCount) {
+        double spacing = DragDropUtil.TOWER_CENTERS[1] - DragDropUtil.TOWER_CENTERS[0];
+        return Math.min(1, BOARD_WIDTH / towerCount / spacing);
+    }
+
+    private static double ringHeightFor(int ringCount) {
+        return Math.min(MAX_RING_HEIGHT, (TOWER_BOTTOM_Y - POLE_TOP_Y) / ringCount);
+    }
+
+    private static double ringWidth(int ring, int ringCount) {
+        double fraction = ringCount == 1 ? 1 : (ring - 1) / (double) (ringCount - 1);
+        return MIN_RING_WIDTH + (MAX_RING_WIDTH - MIN_RING_WIDTH) * fraction;
+    }
+
+    private static Color ringColor(int ring) {
+        // Golden-angle hue steps keep neighbouring rings distinct however many there are.
+        return Color.hsb((ring * 137.508) % 360, 0.65, 0.9);
+    }
+
+    private boolean overlaps(int index, double x, double y, double width, double height) {
+        return drawnX[index] < x + width && drawnX[index] + ringWidths[index] > x
+                && drawnY[index] < y + height && drawnY[index] + ringHeight > y;
+    }
+
+    /**
+     * Adds a ring's current bounds, plus room for its outline, to the region to redraw.
+     *
+     * @param ring the ring that is about to move or change appearance
+     */
+    private void markRingDirty(int ring) {
+        int index = ring - 1;
+        markDirty(drawnX[index] - 2, drawnY[index] - 2, ringWidths[index] + 4, ringHeight + 4);
+    }
+
+    private void markDirty(double x, double y, double width, double height) {
+        if (!dirty) {
+            dirtyMinX = x;
+            dirtyMinY = y;
+            dirtyMaxX = x + width;
+            dirtyMaxY = y + height;
+            dirty = true;
+        } else {
+            dirtyMinX = Math.min(dirtyMinX, x);
+            dirtyMinY = Math.min(dirtyMinY, y);
+            dirtyMaxX = Math.max(dirtyMaxX, x + width);
+            dirtyMaxY = Math.max(dirtyMaxY, y + height);
+        }
+    }
+
+    private void requestPulse() {
+        if (!pulseRunning) {
+            pulseRunning = true;
+            pulse.start();
+        }
+    }
+
+    /**
+     * Returns the tower closest to a horizontal position on the board.
+     *
+     * @param x the x coordinate on the canvas
+     * @return the index of the nearest tower
+     */
+    private int towerAt(double x) {
+        int nearest = 0;
+        for (int tower = 1; tower < towerCenters.length; tower++) {
+            if (Math.abs(x - towerCenters[tower]) < Math.abs(x - towerCenters[nearest])) {
+                nearest = tower;
+            }
+        }
+        return nearest;
+    }
+
+    private double targetX(TowerState state, int ring) {
+        return towerCenters[state.getTowerOf(ring)] - ringWidths[ring - 1] / 2;
+    }
+
+    private double targetY(TowerState state, int ring) {
+        return TOWER_BOTTOM_Y - (state.getHeight(ring) + 1) * ringHeight;
+    }
+}
@@ -0,0 +1,217 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Solves the puzzle between any two legal configurations, not just from a full tower to a full
+ * tower. The length of the shortest solution is computed in O(n), and its moves are streamed
+ * lazily, each in O(n), without storing the solution or searching the state space.
+ * <p>
+ * Rings that are already on their target tower and larger than every misplaced ring never have to
+ * move, so only the largest misplaced ring {@code k} matters. It moves from its tower {@code a} to
+ * its target {@code b} in one of two ways, whichever is shorter:
+ * </p>
+ * <ul>
+ *     <li>directly: the smaller rings gather on the third tower {@code c}, ring {@code k} moves to
+ *     {@code b}, and the smaller rings go from {@code c} to their targets;</li>
+ *     <li>by way of {@code c}: the smaller rings gather on {@code b}, ring {@code k} moves to
+ *     {@code c}, the smaller rings move as a tower back to {@code a} in {@code 2^(k-1) - 1} moves,
+ *     ring {@code k} moves to {@code b}, and the smaller rings go from {@code a} to their targets.</li>
+ * </ul>
+ * <p>
+ * Gathering rings on a tower, and spreading them from a tower to their targets, are both solved
+ * by {@link MoveOracle}, since a solution played backwards is also a solution. Towers are indexed
+ * from 0, like {@link TowerState}; moves use towers numbered from 1. Counts are unsigned, so
+ * they also cover 64 rings.
+ * </p>
+ */
+public final class ConfigurationSolver {
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ConfigurationSolver() {
+    }
+
+    /**
+     * Returns the number of moves in the shortest solution from one configuration to another.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach, with the same ring count
+     * @return the length of the shortest solution, as an unsigned value
+     */
+    public static long moveCount(TowerState start, TowerState target) {
+        checkRingCounts(start, target);
+        int ring = largestMisplaced(start, target);
+        if (ring == 0) {
+            return 0;
+        }
+        long direct = directCost(start, target, ring);
+        long byWayOfThird = byWayOfThirdCost(start, target, ring);
+        return Long.compareUnsigned(byWayOfThird, direct) < 0 ? byWayOfThird : direct;
+    }
+
+    /**
+     * Returns the first move of the shortest solution from one configuration to another.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach, with the same ring count
+     * @return the next move, or null if the configurations are the same
+     */
+    public static Move nextMove(TowerState start, TowerState target) {
+        checkRingCounts(start, target);
+        long packed = nextMovePacked(start, target);
+        return packed < 0 ? null : new Move((int) (packed >>> 4), (int) (packed >>> 2 & 3) + 1, (int) (packed & 3) + 1);
+    }
+
+    /**
+     * Checks whether a move is the first move of a shortest solution from one configuration to
+     * another, that is, whether it brings the board one move closer to the target.
+     *
+     * @param start  the configuration the move is made on
+     * @param target the configuration to reach, with the same ring count
+     * @param ring   the ring being moved
+     * @param from   the tower it is taken from, numbered from 1
+     * @param to     the tower it is placed on, numbered from 1
+     * @return {@code true} if the move is legal and optimal
+     */
+    public static boolean isOptimalMove(TowerState start, TowerState target, int ring, int from, int to) {
+        checkRingCounts(start, target);
+        if (from < 1 || from > TowerState.TOWER_COUNT || to < 1 || to > TowerState.TOWER_COUNT
+                || start.getTop(from - 1) != ring || !start.canMove(from - 1, to - 1)) {
+            return false;
+        }
+        long before = moveCount(start, target);
+        if (before == 0) {
+            return false;
+        }
+        TowerState after = new TowerState(start.getRingCount());
+        after.copyFrom(start);
+        after.moveTop(from - 1, to - 1);
+        return moveCount(after, target) == before - 1;
+    }
+
+    /**
+     * Streams the moves of the shortest solution from one configuration to another. Each move is
+     * computed when it is requested, so the solution is never held in memory. The iterator works
+     * on its own copy of the start configuration.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach, with the same ring count
+     * @return an iterator over the moves of the solution
+     */
+    public static Iterator<Move> moves(TowerState start, TowerState target) {
+        checkRingCounts(start, target);
+        TowerState state = new TowerState(start.getRingCount());
+        state.copyFrom(start);
+        TowerState goal = new TowerState(target.getRingCount());
+        goal.copyFrom(target);
+        return new Iterator<>() {
+            private long remaining = moveCount(state, goal);
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public Move next() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
+                }
+                long packed = nextMovePacked(state, goal);
+                int from = (int) (packed >>> 2 & 3), to = (int) (packed & 3);
+                state.moveTop(from, to);
+                remaining--;
+                return new Move((int) (packed >>> 4), from + 1, to + 1);
+            }
+        };
+    }
+
+    /**
+     * Finds the first move of the shortest solution, packed like {@link MoveOracle} packs moves.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach
+     * @return the packed move, or -1 if the configurations are the same
+     */
+    private static long nextMovePacked(TowerState start, TowerState target) {
+        int ring = largestMisplaced(start, target);
+        if (ring == 0) {
+            return -1;
+        }
+        int from = start.getTowerOf(ring), to = target.getTowerOf(ring), third = 3 - from - to;
+        // Either way, the smaller rings are gathered first, and then ring k moves.
+        int gatherOn = third, ringTo = to;
+        if (Long.compareUnsigned(byWayOfThirdCost(start, target, ring), directCost(start, target, ring)) < 0) {
+            gatherOn = to;
+            ringTo = third;
+        }
+        long packed = MoveOracle.nextMovePacked(start, ring - 1, gatherOn);
+        return packed >= 0 ? packed : (long) ring << 4 | (long) from << 2 | ringTo;
+    }
+
+    /**
+     * Returns the cost of moving the largest misplaced ring straight to its target.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach
+     * @param ring   the largest ring whose tower differs between them
+     * @return the number of moves, as an unsigned value
+     */
+    private static long directCost(TowerState start, TowerState target, int ring) {
+        int third = 3 - start.getTowerOf(ring) - target.getTowerOf(ring);
+        return MoveOracle.distance(start, ring - 1, third) + 1 + MoveOracle.distance(target, ring - 1, third);
+    }
+
+    /**
+     * Returns the cost of moving the largest misplaced ring to its target by way of the third
+     * tower. For 64 rings this can exceed the range of an unsigned {@code long}, in which case the
+     * result saturates at its maximum, which is never shorter than the direct cost.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach
+     * @param ring   the largest ring whose tower differs between them
+     * @return the number of moves, as an unsigned value
+     */
+    private static long byWayOfThirdCost(TowerState start, TowerState target, int ring) {
+        long gather = MoveOracle.distance(start, ring - 1, target.getTowerOf(ring));
+        long spread = MoveOracle.distance(target, ring - 1, start.getTowerOf(ring));
+        // Two moves of the ring itself, plus moving the smaller rings back as a tower in 2^(k-1) - 1 moves.
+        return addSaturated(addSaturated(gather, spread), (1L << (ring - 1)) + 1);
+    }
+
+    /**
+     * Adds two unsigned values, saturating at the largest unsigned {@code long}.
+     */
+    private static long addSaturated(long a, long b) {
+        long sum = a + b;
+        return Long.compareUnsigned(sum, a) < 0 ? -1L : sum;
+    }
+
+    /**
+     * Finds the largest ring that is not on its target tower.
+     *
+     * @param start  the configuration to start from
+     * @param target the configuration to reach
+     * @return the ring, or 0 if every ring is in place
+     */
+    private static int largestMisplaced(TowerState start, TowerState target) {
+        for (int ring = start.getRingCount(); ring >= 1; ring--) {
+            if (start.getTowerOf(ring) != target.getTowerOf(ring)) {
+                return ring;
+            }
+        }
+        return 0;
+    }
+
+    private static void checkRingCounts(TowerState start, TowerState target) {
+        if (start.getRingCount() != target.getRingCount()) {
+            throw new IllegalArgumentException("Cannot solve from " + start.getRingCount() + " rings to " + target.getRingCount());
+        }
+        if (start.getTowerCount() != TowerState.TOWER_COUNT || target.getTowerCount() != TowerState.TOWER_COUNT) {
+            throw new IllegalArgumentException("Only configurations on " + TowerState.TOWER_COUNT + " towers can be solved");
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mirohaap.towerofhanoitutor;
 
+import javafx.animation.Animation;
 import javafx.animation.TranslateTransition;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
@@ -10,7 +11,6 @@ import javafx.scene.paint.Color;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
@@ -18,16 +18,18 @@ import org.apache.commons.lang3.mutable.MutableBoolean;
 /**
  * Utility class for handling drag and drop functionality in the Tower of Hanoi game.
  */
-public class DragDropUtil {
+public class DragDropUtil implements BoardView {
     private List<Ring> rings;
     private AnchorPane gamePane;
-    private List<SnapRange> tops;
-    private Rectangle projection;
+    private final SnapRange[] tops; // Where a ring dropped on each tower lands, indexed by tower index
+    private final Rectangle projection; // Outline of where the dragged ring would land, hidden when not over a tower
     private boolean hasWon;
     private static final double TOWER_BOTTOM_Y = 360, DEFAULT_RANGE = 50;
     public static final double[] TOWER_CENTERS = {128.0, 364.0, 600.0};
-    private static final SnapRange TOWER_1_BOTTOM = new SnapRange(TOWER_CENTERS[0], TOWER_BOTTOM_Y, DEFAULT_RANGE, 1), TOWER_2_BOTTOM = new SnapRange(TOWER_CENTERS[1], TOWER_BOTTOM_Y, DEFAULT_RANGE, 2), TOWER_3_BOTTOM = new SnapRange(TOWER_CENTERS[2], TOWER_BOTTOM_Y, DEFAULT_RANGE, 3);
     private double startX, startY, offsetX, offsetY;
+    private boolean dragging; // Whether the ring under the mouse was a top ring when it was pressed
+    private final RingAnimation[] animations; // One reusable animation per ring, indexed by ring number - 1
+    private static final System.Logger LOG = System.getLogger(DragDropUtil.class.getName());
 
     /**
      * Constructs a DragDropUtil object.
@@ -38,27 +40,40 @@ public class DragDropUtil {
     public DragDropUtil(AnchorPane gamePane, List<Ring> rings) {
         this.gamePane = gamePane;
         this.rings = rings;
+        this.animations = new RingAnimation[rings.size()];
         for (Ring ring : rings) {
             makeRingDraggable(ring);
+            animations[ring.getNum() - 1] = new RingAnimation(ring);
+        }
+        tops = new SnapRange[TOWER_CENTERS.length];
+        for (int i = 0; i < tops.length; i++) {
+            tops[i] = new SnapRange(TOWER_CENTERS[i], TOWER_BOTTOM_Y, DEFAULT_RANGE, i + 1);
         }
-        // This assumes the game starts with all rings on tower 1
-        tops = new ArrayList<>();
         refreshTops();
+        projection = new Rectangle();
+        projection.setFill(Color.TRANSPARENT);
+        projection.setStrokeWidth(3);
+        projection.setMouseTransparent(true);
+        projection.setVisible(false);
+        gamePane.getChildren().add(projection);
     }
 
     /**
-     * Makes a ring draggable.
+     * Makes a ring draggable. Whether the ring may be dragged is decided once when it is
+     * pressed, so the drag events themselves only move the ring and the projection.
      *
      * @param ring the ring to make draggable
      */
     private void makeRingDraggable(Ring ring) {
         StackPane ringPane = ring.getVisualRing();
         ringPane.setOnMousePressed(e -> {
-            if (!Repository.getInstance().isTop(ring.getNum())) {
+            dragging = Repository.getInstance().isTop(ring.getNum());
+            if (!dragging) {
                 return;
             }
 
             ringPane.setCursor(Cursor.CLOSED_HAND);
+            ringPane.setViewOrder(-1);
             startX = ringPane.getLayoutX();
             startY = ringPane.getLayoutY();
             offsetX = e.getSceneX() - ringPane.getLayoutX();
@@ -66,7 +81,7 @@ public class DragDropUtil {
         });
 
         ringPane.setOnMouseDragged(e -> {
-            if (!Repository.getInstance().isTop(ring.getNum())) {
+            if (!dragging) {
                 return;
             }
 
@@ -74,29 +89,28 @@ public class DragDropUtil {
             ringPane.setLayoutY(e.getSceneY() - offsetY);
 
             SnapRange inRange = checkSnapRanges(ring);
-            clearProjection();
-            if (inRange != null) {
-                if (!inRange.hasOwner() || inRange.getOwner().getNum() > ring.getNum()) { // Checks if ring is valid to be placed
-                    projectRect(ringPane, inRange, Color.BLACK);
-                } else {
-                    projectRect(ringPane, inRange, Color.RED);
-                }
+            if (inRange == null) {
+                clearProjection();
+            } else if (!inRange.hasOwner() || inRange.getOwner().getNum() > ring.getNum()) { // Checks if ring is valid to be placed
+                projectRect(ringPane, inRange, Color.BLACK);
+            } else {
+                projectRect(ringPane, inRange, Color.RED);
             }
-            ringPane.setViewOrder(-1);
         });
 
         ringPane.setOnMouseReleased(e -> {
-            if (!Repository.getInstance().isTop(ring.getNum())) {
+            if (!dragging) {
                 return;
             }
+            dragging = false;
 
             clearProjection();
             SnapRange inRange = checkSnapRanges(ring);
             Move made = null;
             if (inRange != null && (!inRange.hasOwner() || inRange.getOwner().getNum() > ring.getNum())) {
                 ringPane.setCursor(Cursor.DEFAULT);
-                made = new Move(ring.getNum(), Repository.getInstance().getTower(ring.getNum()), inRange.getTower());
-                if (Tutor.getInstance().validateMove(made)) {
+                made = Tutor.getInstance().validateMove(new Move(ring.getNum(), Repository.getInstance().getTower(ring.getNum()), inRange.getTower()));
+                if (made.isValid()) {
                     ringPane.setLayoutX(inRange.getOgX() - (ringPane.getWidth() / 2));
                     ringPane.setLayoutY(inRange.getOgY() - ringPane.getHeight() + 1);
 
@@ -104,9 +118,13 @@ public class DragDropUtil {
                 }
 
                 Repository.getInstance().applyMove(made);
+                if (made.isValid()) {
+                    refreshTop(made.getFrom() - 1);
+                    refreshTop(made.getTo() - 1);
+                }
 
                 if (Repository.getInstance().checkWin()) {
-                    System.out.println("Winner!");
+                    LOG.log(System.Logger.Level.DEBUG, "Puzzle solved by the player");
                     disableUserInput();
                     hasWon = true;
                 }
@@ -124,7 +142,6 @@ public class DragDropUtil {
             }
 
             ringPane.setViewOrder(0);
-            refreshTops();
         });
     }
 
@@ -132,9 +149,9 @@ public class DragDropUtil {
      * Refreshes the cursors for all towers.
      */
     private void refreshCursors() {
-        refreshCursors(Repository.getInstance().getTowerByIndex(0));
-        refreshCursors(Repository.getInstance().getTowerByIndex(1));
-        refreshCursors(Repository.getInstance().getTowerByIndex(2));
+        refreshCursors(0);
+        refreshCursors(1);
+        refreshCursors(2);
     }
 
     /**
@@ -143,50 +160,46 @@ public class DragDropUtil {
      * @param move the move that was made
      */
     private void refreshCursors(Move move) {
-        refreshCursors(Repository.getInstance().getTowerByIndex(move.getTo() - 1));
-        refreshCursors(Repository.getInstance().getTowerByIndex(move.getFrom() - 1));
+        refreshCursors(move.getTo() - 1);
+        refreshCursors(move.getFrom() - 1);
     }
 
     /**
-     * Refreshes the cursors for a specific tower.
+     * Refreshes the cursors for a specific tower. Every ring below the top one gets the default cursor.
      *
-     * @param toRefresh the list of rings on the tower to refresh
+     * @param towerIndex the index of the tower to refresh
      */
-    private void refreshCursors(List<Integer> toRefresh) {
-        for (Integer i : toRefresh) {
-            Ring ring = rings.get(i - 1);
-            if (!ring.equals(toRefresh.getLast())) {
-                ring.getVisualRing().setCursor(Cursor.DEFAULT);
-            }
+    private void refreshCursors(int towerIndex) {
+        long mask = Repository.getInstance().getState().getMask(towerIndex);
+        // Clear the lowest bit first: the smallest ring on a tower is its top.
+        for (mask &= mask - 1; mask != 0; mask &= mask - 1) {
+            rings.get(Long.numberOfTrailingZeros(mask)).getVisualRing().setCursor(Cursor.DEFAULT);
         }
     }
 
     /**
-     * Refreshes the tops of the towers.
+     * Refreshes the tops of all towers.
      */
     private void refreshTops() {
-        tops.clear();
-        List<Integer> intTops = Repository.getInstance().getTops();
-        for (int i = 0; i < 3; i++) {
-            if (intTops.get(i) == -1) {
-                switch (i) {
-                    case 0:
-                        tops.add(TOWER_1_BOTTOM);
-                        break;
-                    case 1:
-                        tops.add(TOWER_2_BOTTOM);
-                        break;
-                    case 2:
-                        tops.add(TOWER_3_BOTTOM);
-                        break;
-                    default:
-                        break;
-                }
-            } else {
-                Ring top = rings.get(intTops.get(i) - 1);
-                top.getVisualRing().setCursor(Cursor.OPEN_HAND);
-                tops.add(new SnapRange(top.getVisualRing().getLayoutX() + (top.getVisualRing().getWidth() / 2), top.getVisualRing().getLayoutY(), DEFAULT_RANGE, top));
-            }
+        for (int i = 0; i < tops.length; i++) {
+            refreshTop(i);
+        }
+    }
+
+    /**
+     * Moves a tower's snap range to its current top ring, or to its base if the tower is empty.
+     *
+     * @param towerIndex the index of the tower to refresh
+     */
+    private void refreshTop(int towerIndex) {
+        int topRing = Repository.getInstance().getTop(towerIndex);
+        if (topRing == -1) {
+            tops[towerIndex].moveTo(TOWER_CENTERS[towerIndex], TOWER_BOTTOM_Y, null);
+        } else {
+            Ring top = rings.get(topRing - 1);
+            StackPane topPane = top.getVisualRing();
+            topPane.setCursor(Cursor.OPEN_HAND);
+            tops[towerIndex].moveTo(topPane.getLayoutX() + (topPane.getWidth() / 2), topPane.getLayoutY(), top);
         }
     }
 
@@ -206,30 +219,26 @@ public class DragDropUtil {
     }
 
     /**
-     * Clears the projection rectangle.
+     * Hides the projection rectangle.
      */
     private void clearProjection() {
-        if (projection != null) {
-            projection.setVisible(false);
-            gamePane.getChildren().remove(projection);
-        }
-        projection = null;
+        projection.setVisible(false);
     }
 
     /**
-     * Projects a rectangle to indicate where a ring will be placed.
+     * Moves the projection rectangle to indicate where a ring will be placed.
      *
      * @param example the StackPane representing the ring
      * @param sr      the SnapRange where the ring will be placed
      * @param color   the color of the projected rectangle
      */
     public void projectRect(StackPane example, SnapRange sr, Color color) {
-        projection = new Rectangle(sr.getOgX() - (example.getWidth() / 2), sr.getOgY() - example.getHeight(), example.getWidth(), example.getHeight());
-        projection.setFill(Color.TRANSPARENT);
+        projection.setX(sr.getOgX() - (example.getWidth() / 2));
+        projection.setY(sr.getOgY() - example.getHeight());
+        projection.setWidth(example.getWidth());
+        projection.setHeight(example.getHeight());
         projection.setStroke(color);
-        projection.setStrokeWidth(3);
         projection.setVisible(true);
-        gamePane.getChildren().add(projection);
     }
 
     /**
@@ -238,58 +247,72 @@ public class DragDropUtil {
      * @param move     the move to animate
      * @param interval the duration of the animation in milliseconds
      * @param reenable a mutable boolean indicating whether to re-enable user input after the animation
-     * @return the TranslateTransition representing the animation
      */
-    public TranslateTransition animateMove(Move move, double interval, MutableBoolean reenable) {
+    @Override
+    public void animateMove(Move move, double interval, MutableBoolean reenable) {
         Ring moving = rings.get(move.getN() - 1);
         moving.getVisualRing().setViewOrder(-1.0);
         double destinationX = TOWER_CENTERS[move.getTo() - 1] - (moving.getVisualRing().getWidth() / 2);
-        double destinationY = TOWER_BOTTOM_Y - 1 - (Repository.getInstance().getTowerByIndex(move.getTo() - 1).size() * 29);
-        System.out.println(destinationY);
-
-        TranslateTransition transition = new TranslateTransition(Duration.millis(interval), moving.getVisualRing());
-        transition.setToX(destinationX - moving.getVisualRing().getLayoutX());
-        transition.setToY(destinationY - moving.getVisualRing().getLayoutY());
+        double destinationY = TOWER_BOTTOM_Y - 1 - (Repository.getInstance().getTowerSize(move.getTo() - 1) * 29);
+        animateRing(moving, destinationX, destinationY, interval, reenable);
+    }
 
-        transition.setOnFinished(new EventHandler<ActionEvent>() {
-            @Override
-            public void handle(ActionEvent event) {
-                System.out.println("finished");
-                SoundPlayer.getInstance().playPlace();
-                moving.getVisualRing().setTranslateX(0);
-                moving.getVisualRing().setTranslateY(0);
-                moving.getVisualRing().setLayoutX(destinationX);
-                moving.getVisualRing().setLayoutY(destinationY);
-                moving.getVisualRing().setViewOrder(0);
-                AnimationRepository.getInstance().remove(transition);
-                if (reenable.isTrue()) {
-                    System.out.println("enabling");
-                    enableUserInput();
-                }
+    /**
+     * Animates every ring that is not where the repository state puts it, all at once. Used when
+     * the board advances by several moves in one step, such as a whole subtower moving as a unit.
+     *
+     * @param interval the duration of the animation in milliseconds
+     * @param reenable a mutable boolean indicating whether to re-enable user input after the animation
+     */
+    @Override
+    public void animateToRepository(double interval, MutableBoolean reenable) {
+        TowerState state = Repository.getInstance().getState();
+        for (Ring ring : rings) {
+            StackPane ringPane = ring.getVisualRing();
+            double destinationX = TOWER_CENTERS[state.getTowerOf(ring.getNum())] - (ringPane.getWidth() / 2);
+            double destinationY = TOWER_BOTTOM_Y - 1 - ((state.getHeight(ring.getNum()) + 1) * 29);
+            if (Math.abs(ringPane.getLayoutX() - destinationX) > 0.5 || Math.abs(ringPane.getLayoutY() - destinationY) > 0.5) {
+                ringPane.setViewOrder(-1.0);
+                animateRing(ring, destinationX, destinationY, interval, reenable);
             }
-        });
-
-        AnimationRepository.getInstance().add(transition);
-        transition.play();
-        return transition;
+        }
     }
 
     /**
-     * Allows or disallows user input.
+     * Slides a ring to a new position and commits the position when the animation finishes.
      *
-     * @param allow true to allow user input, false to disallow
+     * @param moving       the ring to move
+     * @param destinationX the layout x the ring ends at
+     * @param destinationY the layout y the ring ends at
+     * @param interval     the duration of the animation in milliseconds
+     * @param reenable     a mutable boolean indicating whether to re-enable user input after the animation
      */
-    public void allowUserInput(boolean allow) {
-        if (allow) {
-            enableUserInput();
-        } else {
-            disableUserInput();
+    private void animateRing(Ring moving, double destinationX, double destinationY, double interval, MutableBoolean reenable) {
+        animations[moving.getNum() - 1].start(destinationX, destinationY, interval, reenable);
+    }
+
+    /**
+     * Places every ring directly at its position in the current repository state, without animation.
+     * Used after the board jumps to a new state instead of reaching it move by move.
+     */
+    @Override
+    public void syncToRepository() {
+        TowerState state = Repository.getInstance().getState();
+        for (Ring ring : rings) {
+            StackPane ringPane = ring.getVisualRing();
+            ringPane.setTranslateX(0);
+            ringPane.setTranslateY(0);
+            ringPane.setLayoutX(TOWER_CENTERS[state.getTowerOf(ring.getNum())] - (ringPane.getWidth() / 2));
+            ringPane.setLayoutY(TOWER_BOTTOM_Y - 1 - ((state.getHeight(ring.getNum()) + 1) * 29));
         }
+        refreshCursors();
+        refreshTops();
     }
 
     /**
      * Disables user input.
      */
+    @Override
     public void disableUserInput() {
         gamePane.setDisable(true);
     }
@@ -297,6 +320,7 @@ public class DragDropUtil {
     /**
      * Enables user input.
      */
+    @Override
     public void enableUserInput() {
         refreshCursors();
         refreshTops();
@@ -308,7 +332,92 @@ public class DragDropUtil {
      *
      * @return true if the game has been won, false otherwise
      */
+    @Override
     public boolean hasWon() {
         return hasWon;
     }
-}
\ No newline at end of file
+
+    /**
+     * The animation of one ring. Each ring keeps a single transition and finish handler for the
+     * whole game and only reconfigures them per move, so animating a move allocates nothing.
+     */
+    private class RingAnimation implements EventHandler<ActionEvent> {
+        private final Ring ring;
+        private final TranslateTransition transition;
+        private double destinationX, destinationY;
+        private double durationMillis = -1;
+        private MutableBoolean reenable;
+
+        RingAnimation(Ring ring) {
+            this.ring = ring;
+            this.transition = new TranslateTransition(Duration.ZERO, ring.getVisualRing());
+            transition.setOnFinished(this);
+        }
+
+        /**
+         * Slides the ring from its current position to a new one. An animation still running on
+         * this ring is cut short first; the new animation takes its place in the running count, so
+         * listeners are not told that every animation has completed in between.
+         *
+         * @param destinationX the layout x the ring ends at
+         * @param destinationY the layout y the ring ends at
+         * @param interval     the duration of the animation in milliseconds
+         * @param reenable     a mutable boolean indicating whether to re-enable user input after the animation
+         */
+        void start(double destinationX, double destinationY, double interval, MutableBoolean reenable) {
+            boolean running = transition.getStatus() == Animation.Status.RUNNING;
+            if (running) {
+                cancel();
+            }
+            StackPane ringPane = ring.getVisualRing();
+            this.destinationX = destinationX;
+            this.destinationY = destinationY;
+            this.reenable = reenable;
+            if (interval != durationMillis) {
+                durationMillis = interval; // Durations are immutable, so only a new speed needs a new one.
+                transition.setDuration(Duration.millis(interval));
+            }
+            transition.setToX(destinationX - ringPane.getLayoutX());
+            transition.setToY(destinationY - ringPane.getLayoutY());
+            if (!running) {
+                AnimationRepository.getInstance().animationStarted();
+            }
+            transition.playFromStart();
+        }
+
+        /**
+         * Stops the running animation and snaps the ring to where it was headed, without the
+         * completion side effects of {@link #handle(ActionEvent)}: no sound, no change to the
+         * running count and no re-enabling of user input.
+         */
+        private void cancel() {
+            transition.stop();
+            StackPane ringPane = ring.getVisualRing();
+            ringPane.setTranslateX(0);
+            ringPane.setTranslateY(0);
+            ringPane.setLayoutX(destinationX);
+            ringPane.setLayoutY(destinationY);
+        }
+
+        /**
+         * Commits the ring's final position when its animation finishes.
+         *
+         * @param event the finish event
+         */
+        @Override
+        public void handle(ActionEvent event) {
+            StackPane ringPane = ring.getVisualRing();
+            SoundPlayer.getInstance().playPlace();
+            ringPane.setTranslateX(0);
+            ringPane.setTranslateY(0);
+            ringPane.setLayoutX(destinationX);
+            ringPane.setLayoutY(destinationY);
+            ringPane.setViewOrder(0);
+            AnimationRepository.getInstance().animationFinished();
+            if (reenable.isTrue()) {
+                LOG.log(System.Logger.Level.TRACE, "Re-enabling user input after autoplay");
+                enableUserInput();
+            }
+        }
+    }
+}
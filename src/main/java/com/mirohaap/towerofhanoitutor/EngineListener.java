@@ -0,0 +1,38 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * Receives events from a {@link HanoiEngine}. Moves are reported as primitives so that
+ * replaying long move streams does not allocate an event per move. Every method has an
+ * empty default, so listeners only implement what they need.
+ */
+public interface EngineListener {
+
+    /**
+     * Called after a legal move has been applied.
+     *
+     * @param ring    The ring that was moved.
+     * @param from    The tower it was taken from, numbered from 1.
+     * @param to      The tower it was placed on, numbered from 1.
+     * @param optimal Whether the move was the next move of the optimal solution.
+     */
+    default void moveApplied(int ring, int from, int to, boolean optimal) {
+    }
+
+    /**
+     * Called when a move breaks the rules and is not applied.
+     *
+     * @param ring The ring the move tried to move.
+     * @param from The tower it named as the source, numbered from 1.
+     * @param to   The tower it named as the destination, numbered from 1.
+     */
+    default void moveRejected(int ring, int from, int to) {
+    }
+
+    /**
+     * Called when a move completes the puzzle.
+     *
+     * @param validMoveCount The number of legal moves it took.
+     */
+    default void gameWon(int validMoveCount) {
+    }
+}
@@ -0,0 +1,292 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Solves the puzzle on any number of towers, from {@link TowerState#TOWER_COUNT} to
+ * {@link TowerState#MAX_TOWERS}, with the Frame-Stewart algorithm: the smallest {@code k} rings
+ * are parked on a spare tower using every tower, the other rings move to the last tower using
+ * one tower fewer, and the parked rings follow them.
+ * <p>
+ * The best {@code k} and the resulting move count for every tower count and ring count are
+ * computed once, into primitive tables, when the class is loaded. With them, any move or board
+ * of the solution is found in O(n) by walking down the recursion, comparing the index with the
+ * length of each part, so the tutor needs neither the moves nor a search. With three towers the
+ * split is always {@code k = n - 1}, which gives the classic solution.
+ * </p>
+ * <p>
+ * The whole solution can also be written to an array of {@link PackedMove}s. The length of every
+ * part of the recursion is known in advance, so the parts are independent and large ones are
+ * expanded in parallel on the common {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * Towers are indexed from 0 here, like {@link TowerState}; moves use towers numbered from 1.
+ * The rings start on the first tower and end on the last. Counts are unsigned, so they also cover
+ * 64 rings on three towers.
+ * </p>
+ */
+public final class FrameStewartSolver {
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13; // Parts with fewer moves are expanded on one thread
+
+    // Indexed by tower count, then ring count. MOVES holds unsigned move counts; SPLITS the k that achieves them.
+    private static final long[][] MOVES = new long[TowerState.MAX_TOWERS + 1][TowerState.MAX_RINGS + 1];
+    private static final byte[][] SPLITS = new byte[TowerState.MAX_TOWERS + 1][TowerState.MAX_RINGS + 1];
+
+    static {
+        MOVES[TowerState.TOWER_COUNT - 1][1] = 1; // The largest ring of a three-tower part crosses alone.
+        for (int rings = 1; rings <= TowerState.MAX_RINGS; rings++) {
+            MOVES[TowerState.TOWER_COUNT][rings] = rings == 64 ? -1L : (1L << rings) - 1;
+            SPLITS[TowerState.TOWER_COUNT][rings] = (byte) (rings - 1);
+        }
+        for (int towers = TowerState.TOWER_COUNT + 1; towers <= TowerState.MAX_TOWERS; towers++) {
+            MOVES[towers][1] = 1;
+            for (int rings = 2; rings <= TowerState.MAX_RINGS; rings++) {
+                long best = -1;
+                int bestSplit = 0;
+                for (int split = 1; split < rings; split++) {
+                    long cost = addSaturated(addSaturated(MOVES[towers][split], MOVES[towers][split]), MOVES[towers - 1][rings - split]);
+                    if (Long.compareUnsigned(cost, best) < 0) {
+                        best = cost;
+                        bestSplit = split;
+                    }
+                }
+                MOVES[towers][rings] = best;
+                SPLITS[towers][rings] = (byte) bestSplit;
+            }
+        }
+    }
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private FrameStewartSolver() {
+    }
+
+    /**
+     * Returns the number of moves in the solution.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @return the length of the solution, as an unsigned value
+     */
+    public static long totalMoves(int towers, int rings) {
+        checkSize(towers, rings);
+        return MOVES[towers][rings];
+    }
+
+    /**
+     * Returns how many of the smallest rings are parked on a spare tower while the others move.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @return the best split, from 0 to {@code rings - 1}
+     */
+    public static int splitFor(int towers, int rings) {
+        checkSize(towers, rings);
+        return SPLITS[towers][rings];
+    }
+
+    /**
+     * Returns the move at a position of the solution.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @param index  the zero-based position of the move, as an unsigned value
+     * @return the move made at that position
+     */
+    public static Move moveAt(int towers, int rings, long index) {
+        return PackedMove.toMove(packedMoveAt(towers, rings, index));
+    }
+
+    /**
+     * Returns the move at a position of the solution, packed with {@link PackedMove}. This path
+     * allocates nothing.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @param index  the zero-based position of the move, as an unsigned value
+     * @return the packed move made at that position
+     */
+    public static int packedMoveAt(int towers, int rings, long index) {
+        if (Long.compareUnsigned(index, totalMoves(towers, rings)) >= 0) {
+            throw new IndexOutOfBoundsException("Move " + Long.toUnsignedString(index) + " is outside the solution for "
+                    + rings + " rings on " + towers + " towers.");
+        }
+        int pegs = (1 << towers) - 1, from = 0, to = towers - 1, smallest = 1;
+        while (rings > 1) {
+            int pegCount = Integer.bitCount(pegs), split = SPLITS[pegCount][rings], spare = spareOf(pegs, from, to);
+            long parking = MOVES[pegCount][split];
+            if (Long.compareUnsigned(index, parking) < 0) {
+                rings = split;
+                to = spare;
+                continue;
+            }
+            index -= parking;
+            long crossing = MOVES[pegCount - 1][rings - split];
+            if (Long.compareUnsigned(index, crossing) < 0) {
+                smallest += split;
+                rings -= split;
+                pegs &= ~(1 << spare);
+                continue;
+            }
+            index -= crossing;
+            rings = split;
+            from = spare;
+        }
+        return PackedMove.of(smallest, from + 1, to + 1);
+    }
+
+    /**
+     * Returns the board after a number of moves of the solution, in O(n) time and without
+     * replaying the moves that lead there.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @param moves  the number of moves made, from 0 to {@link #totalMoves(int, int)}, as an unsigned value
+     * @return an array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}
+     */
+    public static int[] stateAt(int towers, int rings, long moves) {
+        if (Long.compareUnsigned(moves, totalMoves(towers, rings)) > 0) {
+            throw new IndexOutOfBoundsException("Step " + Long.toUnsignedString(moves) + " is outside the solution for "
+                    + rings + " rings on " + towers + " towers.");
+        }
+        int[] ringTowers = new int[rings];
+        int pegs = (1 << towers) - 1, from = 0, to = towers - 1, smallest = 1;
+        while (rings > 1) {
+            int pegCount = Integer.bitCount(pegs), split = SPLITS[pegCount][rings], spare = spareOf(pegs, from, to);
+            long parking = MOVES[pegCount][split], crossing = MOVES[pegCount - 1][rings - split];
+            if (Long.compareUnsigned(moves, parking) <= 0) {
+                fill(ringTowers, smallest + split, smallest + rings, from); // The large rings have not moved yet.
+                rings = split;
+                to = spare;
+            } else if (Long.compareUnsigned(moves - parking, crossing) <= 0) {
+                fill(ringTowers, smallest, smallest + split, spare); // The small rings are parked.
+                moves -= parking;
+                smallest += split;
+                rings -= split;
+                pegs &= ~(1 << spare);
+            } else {
+                fill(ringTowers, smallest + split, smallest + rings, to); // The large rings have arrived.
+                moves -= parking + crossing;
+                rings = split;
+                from = spare;
+            }
+        }
+        if (rings == 1) {
+            ringTowers[smallest - 1] = (moves == 0 ? from : to) + 1;
+        }
+        return ringTowers;
+    }
+
+    /**
+     * Writes the whole solution to a new array of {@link PackedMove}s, expanding large parts of
+     * the recursion in parallel.
+     *
+     * @param towers the number of towers
+     * @param rings  the number of rings
+     * @return the packed moves of the solution, in order
+     */
+    public static int[] generate(int towers, int rings) {
+        if (towers == TowerState.TOWER_COUNT && rings <= ParallelSolutionGenerator.MAX_ARRAY_RINGS) {
+            return ParallelSolutionGenerator.generate(rings); // The same moves, written from their closed form
+        }
+        long total = totalMoves(towers, rings);
+        if (Long.compareUnsigned(total, Integer.MAX_VALUE - 8) > 0) {
+            throw new IllegalArgumentException("The solution for " + rings + " rings on " + towers + " towers is too long for an array");
+        }
+        int[] moves = new int[(int) total];
+        ForkJoinPool.commonPool().invoke(new Expansion(moves, 0, rings, 1, 0, towers - 1, (1 << towers) - 1));
+        return moves;
+    }
+
+    /**
+     * Expands one part of the recursion into its slice of the output, forking its three sub-parts
+     * when it is large.
+     */
+    private static final class Expansion extends RecursiveAction {
+        private final int[] out;
+        private final int offset, rings, smallest, from, to, pegs;
+
+        Expansion(int[] out, int offset, int rings, int smallest, int from, int to, int pegs) {
+            this.out = out;
+            this.offset = offset;
+            this.rings = rings;
+            this.smallest = smallest;
+            this.from = from;
+            this.to = to;
+            this.pegs = pegs;
+        }
+
+        @Override
+        protected void compute() {
+            int pegCount = Integer.bitCount(pegs);
+            if (rings <= 1 || MOVES[pegCount][rings] <= SEQUENTIAL_THRESHOLD) {
+                expand(out, offset, rings, smallest, from, to, pegs);
+                return;
+            }
+            int split = SPLITS[pegCount][rings], spare = spareOf(pegs, from, to);
+            int parking = (int) MOVES[pegCount][split], crossing = (int) MOVES[pegCount - 1][rings - split];
+            invokeAll(new Expansion(out, offset, split, smallest, from, spare, pegs),
+                    new Expansion(out, offset + parking, rings - split, smallest + split, from, to, pegs & ~(1 << spare)),
+                    new Expansion(out, offset + parking + crossing, split, smallest, spare, to, pegs));
+        }
+    }
+
+    /**
+     * Writes the moves of one part of the recursion on the current thread.
+     *
+     * @param out      the array to write to
+     * @param offset   where the part's first move goes
+     * @param rings    the number of rings in the part
+     * @param smallest the smallest of those rings
+     * @param from     the tower they start on
+     * @param to       the tower they end on
+     * @param pegs     a mask of the towers the part may use
+     * @return the offset after the part's last move
+     */
+    private static int expand(int[] out, int offset, int rings, int smallest, int from, int to, int pegs) {
+        if (rings == 0) {
+            return offset;
+        }
+        if (rings == 1) {
+            out[offset] = PackedMove.of(smallest, from + 1, to + 1);
+            return offset + 1;
+        }
+        int pegCount = Integer.bitCount(pegs), split = SPLITS[pegCount][rings], spare = spareOf(pegs, from, to);
+        offset = expand(out, offset, split, smallest, from, spare, pegs);
+        offset = expand(out, offset, rings - split, smallest + split, from, to, pegs & ~(1 << spare));
+        return expand(out, offset, split, smallest, spare, to, pegs);
+    }
+
+    /**
+     * Picks the tower the smallest rings are parked on: the lowest usable tower that is neither
+     * the source nor the destination.
+     */
+    private static int spareOf(int pegs, int from, int to) {
+        return Integer.numberOfTrailingZeros(pegs & ~(1 << from) & ~(1 << to));
+    }
+
+    private static void fill(int[] ringTowers, int firstRing, int endRing, int tower) {
+        for (int ring = firstRing; ring < endRing; ring++) {
+            ringTowers[ring - 1] = tower + 1;
+        }
+    }
+
+    /**
+     * Adds two unsigned values, saturating at the largest unsigned {@code long}.
+     */
+    private static long addSaturated(long a, long b) {
+        long sum = a + b;
+        return Long.compareUnsigned(sum, a) < 0 ? -1L : sum;
+    }
+
+    private static void checkSize(int towers, int rings) {
+        if (towers < TowerState.TOWER_COUNT || towers > TowerState.MAX_TOWERS) {
+            throw new IllegalArgumentException("Tower count must be between " + TowerState.TOWER_COUNT + " and " + TowerState.MAX_TOWERS + ", got " + towers);
+        }
+        if (rings < 1 || rings > TowerState.MAX_RINGS) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + TowerState.MAX_RINGS + ", got " + rings);
+        }
+    }
+}
@@ -2,12 +2,17 @@ package com.mirohaap.towerofhanoitutor;
 
 import javafx.animation.Animation;
 import javafx.animation.TranslateTransition;
+import javafx.application.Platform;
 import javafx.beans.binding.Bindings;
 import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Slider;
+import javafx.scene.control.Spinner;
+import javafx.scene.control.SpinnerValueFactory;
 import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.StackPane;
 import javafx.scene.shape.Rectangle;
@@ -37,17 +42,27 @@ public class GameController implements PropertyChangeListener {
     @FXML
     private AnchorPane gamePanel;
     @FXML
-    private Slider speedSlider;
+    private Slider speedSlider, timelineSlider;
     @FXML
     private Text secondsDisplay, timeLabel;
     @FXML
     private Button autoPlayButton, backButton, nextButton;
     @FXML
+    private ChoiceBox<AutoPlayMode> autoPlayModeBox;
+    @FXML
+    private Spinner<Integer> budgetSpinner; // Seconds the rest of the game may take in budgeted autoplay
+    @FXML
     public TextFlow tutorText;
+    @FXML
+    private Canvas targetCanvas; // Shows the configuration to reach in target puzzles
+
+    private static final int MAX_NODE_RINGS = 10; // Rings defined as nodes in the view; more are drawn on a canvas
 
-    private DragDropUtil dragDropUtil;
+    private BoardView board;
     private AutoPlayUtil autoPlayUtil;
+    private SessionPlayback playback; // Plays a recorded game, or null if the player is playing
     private Window window;
+    private boolean updatingTimeline;
 
     /**
      * Initializes the controller and sets up the UI based on whether the tutor mode is enabled.
@@ -61,47 +76,129 @@ public class GameController implements PropertyChangeListener {
             nextButton.setVisible(false);
             secondsDisplay.setVisible(false);
             timeLabel.setVisible(false);
+            timelineSlider.setVisible(false);
+            autoPlayModeBox.setVisible(false);
         } else {
             backButton.setDisable(true);
         }
 
+        autoPlayModeBox.getItems().setAll(AutoPlayMode.values());
+        autoPlayModeBox.setValue(AutoPlayMode.NORMAL);
+        budgetSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(5, 3600, 30, 5));
+        budgetSpinner.visibleProperty().bind(autoPlayModeBox.valueProperty().isEqualTo(AutoPlayMode.BUDGETED));
         secondsDisplay.textProperty().bind(Bindings.format("%.2f", speedSlider.valueProperty()));
+
+        timelineSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+            if (!updatingTimeline && !timelineSlider.isValueChanging()) {
+                seekTo(newValue.longValue());
+            }
+        });
+        timelineSlider.valueChangingProperty().addListener((observable, wasChanging, changing) -> {
+            if (!changing) {
+                seekTo((long) timelineSlider.getValue());
+            }
+        });
     }
 
     /**
-     * Initializes the rings based on the selected number of rings and adjusts the game
-     * environment accordingly.
+     * Initializes the rings of a three-tower game based on the selected number of rings.
      *
      * @param ringCount The number of rings selected for the game.
      */
     public void initRings(int ringCount) {
-        List<Ring> rings = new ArrayList<>() {{
-            for (int i = 1; i <= 10; i++) {
-                if (i <= ringCount) {
-                    Ring cur = new Ring((StackPane) gamePanel.lookup("#ring" + i), i);
-                    cur.getVisualRing().setLayoutY(cur.getVisualRing().getLayoutY() + (29 * (10 - ringCount)));
-                    add(cur);
-                } else {
-                    gamePanel.getChildren().remove(gamePanel.lookup("#ring" + i));
-                }
-            }
-        }};
-        Repository.getInstance().init(ringCount);
+        initRings(ringCount, TowerState.TOWER_COUNT);
+    }
 
-        if (ringCount < 10) {
-            double adjustment = 29 * (10 - ringCount);
+    /**
+     * Initializes the rings based on the selected number of rings and towers and adjusts the game
+     * environment accordingly. Games with more rings or towers than the view defines are drawn on
+     * a {@link CanvasBoardRenderer} instead. Budgeted autoplay follows the three-tower solution,
+     * so it is only offered on three towers.
+     *
+     * @param ringCount  The number of rings selected for the game.
+     * @param towerCount The number of towers selected for the game.
+     */
+    public void initRings(int ringCount, int towerCount) {
+        if (ringCount > MAX_NODE_RINGS || towerCount != TowerState.TOWER_COUNT) {
+            for (int i = 1; i <= MAX_NODE_RINGS; i++) {
+                gamePanel.getChildren().remove(gamePanel.lookup("#ring" + i));
+            }
             for (int i = 1; i < 4; i++) {
-                Rectangle cur = (Rectangle) gamePanel.lookup("#tower" + i);
-                cur.setHeight(cur.getHeight() - adjustment);
-                cur.setLayoutY(cur.getLayoutY() + adjustment);
+                gamePanel.lookup("#tower" + i).setVisible(false);
+                gamePanel.lookup("#tow" + i + "Bottom").setVisible(false);
             }
-        }
+            Repository.getInstance().init(ringCount, towerCount);
+            this.board = new CanvasBoardRenderer(gamePanel, ringCount, towerCount);
+            if (towerCount != TowerState.TOWER_COUNT) {
+                autoPlayModeBox.getItems().remove(AutoPlayMode.BUDGETED);
+            }
+        } else {
+            List<Ring> rings = new ArrayList<>() {{
+                for (int i = 1; i <= MAX_NODE_RINGS; i++) {
+                    if (i <= ringCount) {
+                        Ring cur = new Ring((StackPane) gamePanel.lookup("#ring" + i), i);
+                        cur.getVisualRing().setLayoutY(cur.getVisualRing().getLayoutY() + (29 * (MAX_NODE_RINGS - ringCount)));
+                        add(cur);
+                    } else {
+                        gamePanel.getChildren().remove(gamePanel.lookup("#ring" + i));
+                    }
+                }
+            }};
+            Repository.getInstance().init(ringCount);
 
-        this.dragDropUtil = new DragDropUtil(gamePanel, rings);
+            if (ringCount < MAX_NODE_RINGS) {
+                double adjustment = 29 * (MAX_NODE_RINGS - ringCount);
+                for (int i = 1; i < 4; i++) {
+                    Rectangle cur = (Rectangle) gamePanel.lookup("#tower" + i);
+                    cur.setHeight(cur.getHeight() - adjustment);
+                    cur.setLayoutY(cur.getLayoutY() + adjustment);
+                }
+            }
+
+            this.board = new DragDropUtil(gamePanel, rings);
+        }
+        refreshTimeline();
         Repository.getInstance().addListener(this);
         AnimationRepository.getInstance().addListener(this);
     }
 
+    /**
+     * Starts a puzzle from a scrambled configuration instead of the classic start. Must be called
+     * after {@link #initRings(int)}. A puzzle's solution cannot be indexed, so the timeline and
+     * the autoplay modes that seek through it are hidden. If the puzzle has a target configuration, it is drawn in the
+     * corner of the board.
+     *
+     * @param start The configuration to start from.
+     * @param goal  The configuration that wins, or null if any full tower other than tower 1 wins.
+     */
+    public void startPuzzle(TowerState start, TowerState goal) {
+        Repository.getInstance().startPuzzle(start, goal);
+        Tutor.getInstance().calculateMoves(start, goal);
+        board.syncToRepository();
+        timelineSlider.setVisible(false);
+        autoPlayModeBox.getItems().removeAll(AutoPlayMode.TURBO, AutoPlayMode.INSTANT, AutoPlayMode.BUDGETED);
+        if (goal != null) {
+            CanvasBoardRenderer.drawState(targetCanvas, goal);
+            targetCanvas.setVisible(true);
+            textToDisplay("Match the target in the corner!");
+        }
+    }
+
+    /**
+     * Plays a recorded game on the board instead of letting the player play. Must be called
+     * after {@link #initRings(int)} with the recording's ring count.
+     *
+     * @param replayer The recording to play.
+     * @param speed    How many times faster than recorded to play.
+     */
+    public void replay(SessionReplayer replayer, double speed) {
+        playback = new SessionPlayback(board, replayer);
+        timelineSlider.setVisible(true);
+        timelineSlider.setDisable(false);
+        refreshTimeline();
+        playback.beginPlaying(speed);
+    }
+
     /**
      * Handles the restart button click by closing the current game window and opening a new one.
      *
@@ -109,6 +206,9 @@ public class GameController implements PropertyChangeListener {
      */
     @FXML
     public void onRestartButtonClick() throws IOException {
+        if (playback != null) {
+            playback.stopPlaying();
+        }
         Stage currentGameStage = (Stage) autoPlayButton.getScene().getWindow();
         currentGameStage.close();
         Window.getInstance().resetGame();
@@ -132,9 +232,14 @@ public class GameController implements PropertyChangeListener {
     public void beginAutoPlay() {
         if (autoPlayUtil == null && !AnimationRepository.getInstance().animationsRunning()) {
             allowInteractions(false);
-            autoPlayUtil = new AutoPlayUtil(dragDropUtil);
-            autoPlayUtil.beginPlaying((int) (speedSlider.getValue() * 1000));
+            autoPlayUtil = new AutoPlayUtil(board);
             autoPlayButton.setText("Pause");
+            int interval = (int) (speedSlider.getValue() * 1000);
+            if (autoPlayModeBox.getValue() == AutoPlayMode.BUDGETED) {
+                autoPlayUtil.beginPlaying(interval, budgetSpinner.getValue() * 1000L);
+            } else {
+                autoPlayUtil.beginPlaying(interval, autoPlayModeBox.getValue());
+            }
         } else if (autoPlayUtil != null) {
             autoPlayUtil.stopPlaying();
             autoPlayUtil = null;
@@ -150,12 +255,11 @@ public class GameController implements PropertyChangeListener {
         if (AnimationRepository.getInstance().animationsRunning()) {
             return;
         }
-        dragDropUtil.disableUserInput();
+        board.disableUserInput();
         allowInteractions(false);
-        Move next = Tutor.getInstance().getNextMove();
-        next.setValid(true);
+        Move next = Tutor.getInstance().getNextMove().withValid(true);
         Repository.getInstance().applyMove(next);
-        dragDropUtil.animateMove(next, speedSlider.getValue() * 1000 * 0.9, new MutableBoolean(false));
+        board.animateMove(next, speedSlider.getValue() * 1000 * 0.9, new MutableBoolean(false));
     }
 
     /**
@@ -166,13 +270,63 @@ public class GameController implements PropertyChangeListener {
         if (AnimationRepository.getInstance().animationsRunning()) {
             return;
         }
-        dragDropUtil.disableUserInput();
+        board.disableUserInput();
         allowInteractions(false);
 
         Move last = Repository.getInstance().popLastValidMove();
         Tutor.getInstance().revertMove();
 
-        dragDropUtil.animateMove(last.reversed(), speedSlider.getValue() * 1000 * 0.9, new MutableBoolean(true));
+        board.animateMove(last.reversed(), speedSlider.getValue() * 1000 * 0.9, new MutableBoolean(true));
+    }
+
+    /**
+     * Jumps the board straight to a step of the optimal solution, or of the recording being
+     * replayed. The configuration is computed directly or restored from the recording's
+     * checkpoints rather than replayed, so this takes the same time for any step. Seeking
+     * discards the move history, so the moves before the new step cannot be taken back.
+     * Seeking to the last step of the solution wins the game.
+     *
+     * @param step The number of optimal moves, or recorded moves, to show as made.
+     */
+    public void seekTo(long step) {
+        if (AnimationRepository.getInstance().animationsRunning() || autoPlayUtil != null) {
+            refreshTimeline();
+            return;
+        }
+        if (playback != null) {
+            playback.seekTo(step);
+            refreshTimeline();
+            return;
+        }
+        Tutor tutor = Tutor.getInstance();
+        if (!tutor.hasIndexedSolution()) {
+            return;
+        }
+        step = Math.max(0, Math.min(step, tutor.getTotalMoves()));
+        if (step == tutor.getMoveNumber()) {
+            return;
+        }
+        tutor.seekTo(step);
+        Repository.getInstance().jumpTo(tutor.stateAt(step));
+        board.syncToRepository();
+        if (!Repository.getInstance().checkWin()) {
+            updateInterface(); // A seek to the last step has been handled as a win.
+        }
+    }
+
+    /**
+     * Moves the timeline scrubber to the tutor's current position without triggering a seek.
+     */
+    private void refreshTimeline() {
+        updatingTimeline = true;
+        if (playback != null) {
+            timelineSlider.setMax(playback.getLength());
+            timelineSlider.setValue(playback.getPosition());
+        } else {
+            timelineSlider.setMax(Tutor.getInstance().getTotalMoves());
+            timelineSlider.setValue(Tutor.getInstance().getMoveNumber());
+        }
+        updatingTimeline = false;
     }
 
     /**
@@ -183,11 +337,15 @@ public class GameController implements PropertyChangeListener {
     public void propertyChange(PropertyChangeEvent evt) {
         switch (evt.getPropertyName()) {
             case "move":
+                if (autoPlayUtil == null) {
+                    refreshTimeline();
+                }
                 if (!AnimationRepository.getInstance().animationsRunning() && autoPlayUtil == null) {
                     backButton.setDisable(!(Repository.getInstance().getValidMoveCount() > 0));
                 }
                 break;
             case "all_animations_complete":
+                refreshTimeline();
                 updateInterface();
                 break;
             case "win":
@@ -195,9 +353,16 @@ public class GameController implements PropertyChangeListener {
                 if (autoPlayUtil != null) {
                     autoPlayUtil.stopPlaying();
                 }
-                dragDropUtil.disableUserInput();
-                gameComplete();
-                backButton.setDisable(false);
+                board.disableUserInput();
+                if (playback != null) {
+                    timelineSlider.setDisable(false);
+                    refreshTimeline();
+                    break; // The replayed game was won; the scrubber stays usable.
+                }
+                // Autoplay applies moves during an animation pulse, where dialogs cannot be shown.
+                Platform.runLater(this::gameComplete);
+                // Turbo, instant and budgeted autoplay jump to the win, which clears the move history.
+                backButton.setDisable(Repository.getInstance().getValidMoveCount() == 0);
                 break;
         }
     }
@@ -206,6 +371,9 @@ public class GameController implements PropertyChangeListener {
      * Updates the game interface based on the current state.
      */
     private void updateInterface() {
+        if (playback != null) {
+            return; // A replay never hands the board to the player.
+        }
         if (autoPlayUtil != null) {
             speedSlider.setDisable(true);
             return;
@@ -214,10 +382,13 @@ public class GameController implements PropertyChangeListener {
             backButton.setDisable(!(Repository.getInstance().getValidMoveCount() > 0));
             nextButton.setDisable(!Tutor.getInstance().movesLeft());
             autoPlayButton.setDisable(!Tutor.getInstance().movesLeft());
-            dragDropUtil.allowUserInput(Tutor.getInstance().movesLeft());
+            board.allowUserInput(Tutor.getInstance().movesLeft());
             speedSlider.setDisable(false);
+            timelineSlider.setDisable(false);
+            autoPlayModeBox.setDisable(false);
+            budgetSpinner.setDisable(false);
         } else {
-            dragDropUtil.allowUserInput(!Repository.getInstance().checkWin());
+            board.allowUserInput(!Repository.getInstance().checkWin());
         }
     }
 
@@ -228,6 +399,9 @@ public class GameController implements PropertyChangeListener {
      */
     private void allowInteractions(boolean canInteract) {
         speedSlider.setDisable(!canInteract);
+        timelineSlider.setDisable(!canInteract);
+        autoPlayModeBox.setDisable(!canInteract);
+        budgetSpinner.setDisable(!canInteract);
         backButton.setDisable(!canInteract);
         nextButton.setDisable(!canInteract);
     }
@@ -0,0 +1,139 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * One independent game: its own tower state, tutor cursor and move log, held in a
+ * {@link HanoiEngine}. Any thread may hand work to a session, but the work runs under
+ * single-writer semantics: tasks are queued in a lock-free mailbox and drained by one thread
+ * at a time, in submission order. The calling thread drains the mailbox if no other thread is
+ * doing so, so sessions need no threads of their own and no locks, and thousands of them can
+ * run side by side.
+ * <p>
+ * Listeners are called on whichever thread is draining. The engine and move log must only be
+ * touched from inside a task.
+ * </p>
+ */
+public class GameSession {
+    private final long id;
+    private final HanoiEngine engine;
+    private final MoveLog moveLog = new MoveLog();
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    /**
+     * Creates a session with every ring on the first tower. Use {@link SessionRegistry#create(int)}
+     * to create sessions that can be looked up by id.
+     *
+     * @param id        The session's identifier.
+     * @param ringCount The number of rings.
+     */
+    public GameSession(long id, int ringCount) {
+        this.id = id;
+        this.engine = new HanoiEngine(ringCount);
+    }
+
+    /**
+     * Queues a task to run against this session and runs the queue if no other thread is.
+     *
+     * @param task The task to run.
+     */
+    public void execute(Runnable task) {
+        mailbox.offer(task);
+        drain();
+    }
+
+    /**
+     * Queues a query against this session and returns its result once it has run.
+     *
+     * @param query The query to run against the engine.
+     * @param <T>   The type of the result.
+     * @return A future completed with the query's result, or exceptionally if the query throws.
+     */
+    public <T> CompletableFuture<T> query(Function<HanoiEngine, T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        execute(() -> {
+            try {
+                result.complete(query.apply(engine));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Queues a move. Its outcome is reported to the session's listeners.
+     *
+     * @param ring The ring to move.
+     * @param from The tower to take it from, numbered from 1.
+     * @param to   The tower to place it on, numbered from 1.
+     */
+    public void submit(int ring, int from, int to) {
+        execute(() -> {
+            if (engine.submit(ring, from, to)) {
+                moveLog.add(PackedMove.of(ring, from, to, true));
+            }
+        });
+    }
+
+    /**
+     * Queues the registration of a listener, so it takes effect in order with other tasks.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(EngineListener listener) {
+        execute(() -> engine.addListener(listener));
+    }
+
+    /**
+     * Runs queued tasks until the mailbox is empty, unless another thread is already doing so.
+     * The re-check after releasing the flag picks up tasks offered while it was being released.
+     */
+    private void drain() {
+        do {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                Runnable task;
+                while ((task = mailbox.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        System.out.println("Task failed in game session " + id);
+                        e.printStackTrace();
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+        } while (!mailbox.isEmpty());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the engine. Only safe to use from inside a task run by this session.
+     *
+     * @return The session's engine.
+     */
+    HanoiEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * Returns the applied moves. Only safe to use from inside a task run by this session.
+     *
+     * @return The session's move log.
+     */
+    MoveLog getMoveLog() {
+        return moveLog;
+    }
+}
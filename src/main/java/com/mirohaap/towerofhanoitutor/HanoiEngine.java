@@ -0,0 +1,183 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Runs the Tower of Hanoi rules without any UI, voice, or sound. The engine validates each
+ * submitted move against the current {@link TowerState}, applies it, scores it, and reports the
+ * outcome to its {@link EngineListener}s. A move is optimal if it is the next move of a shortest
+ * way to win from the board it was made on, as found by {@link MoveOracle}, so moves keep being
+ * scored and hinted correctly after the player strays from the canonical solution.
+ * <p>
+ * Unlike {@link Repository} and {@link Tutor}, an engine is an ordinary object: create one per
+ * game, for example to replay recorded moves on a server or in a benchmark. An engine is not
+ * thread-safe; share one between threads through a {@link GameSession}.
+ * </p>
+ */
+public class HanoiEngine {
+    private final TowerState state;
+    private final int ringCount;
+    private final List<EngineListener> listeners = new ArrayList<>();
+    private int validMoveCount, invalidMoveCount, optimalMoveCount;
+
+    /**
+     * Creates an engine with every ring stacked on the first tower.
+     *
+     * @param ringCount The number of rings, from 1 to {@link OptimalSolution#MAX_RINGS}.
+     */
+    public HanoiEngine(int ringCount) {
+        if (ringCount < 1 || ringCount > OptimalSolution.MAX_RINGS) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + OptimalSolution.MAX_RINGS + ", got " + ringCount);
+        }
+        this.ringCount = ringCount;
+        this.state = new TowerState(ringCount);
+    }
+
+    /**
+     * Adds a listener to be notified of every move.
+     *
+     * @param listener The listener to add.
+     */
+    public void addListener(EngineListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Validates, applies and scores a move.
+     *
+     * @param move The move to submit.
+     * @return true if the move was legal and applied, false otherwise.
+     */
+    public boolean submit(Move move) {
+        return submit(move.getN(), move.getFrom(), move.getTo());
+    }
+
+    /**
+     * Validates, applies and scores a move given as primitives. This path allocates nothing.
+     *
+     * @param ring The ring to move.
+     * @param from The tower to take it from, numbered from 1.
+     * @param to   The tower to place it on, numbered from 1.
+     * @return true if the move was legal and applied, false otherwise.
+     */
+    public boolean submit(int ring, int from, int to) {
+        if (!isLegal(ring, from, to)) {
+            invalidMoveCount++;
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).moveRejected(ring, from, to);
+            }
+            return false;
+        }
+
+        boolean optimal = MoveOracle.goalAdvancedBy(state, ring, from, to) >= 0;
+        state.moveTop(from - 1, to - 1);
+        validMoveCount++;
+        if (optimal) {
+            optimalMoveCount++;
+        }
+
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).moveApplied(ring, from, to, optimal);
+        }
+        if (isWon()) {
+            for (int i = 0; i < listeners.size(); i++) {
+                listeners.get(i).gameWon(validMoveCount);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Submits every move from a stream of moves, stopping early if the game is won.
+     *
+     * @param moves The moves to submit, in order.
+     * @return The number of moves that were legal and applied.
+     */
+    public int submitAll(Iterator<? extends Move> moves) {
+        int applied = 0;
+        while (moves.hasNext() && !isWon()) {
+            if (submit(moves.next())) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Places the rings directly in a configuration, as a recorded game does when the player
+     * seeks. Nothing is scored and listeners are not notified.
+     *
+     * @param target The configuration to load, with the engine's ring count and three towers.
+     */
+    public void load(TowerState target) {
+        state.copyFrom(target);
+    }
+
+    /**
+     * Checks whether a move follows the rules in the current state.
+     *
+     * @param ring The ring to move.
+     * @param from The tower to take it from, numbered from 1.
+     * @param to   The tower to place it on, numbered from 1.
+     * @return true if the ring is on top of {@code from} and may be placed on {@code to}.
+     */
+    public boolean isLegal(int ring, int from, int to) {
+        return ring >= 1 && ring <= ringCount
+                && from >= 1 && from <= TowerState.TOWER_COUNT && to >= 1 && to <= TowerState.TOWER_COUNT
+                && state.getTop(from - 1) == ring && state.canMove(from - 1, to - 1);
+    }
+
+    /**
+     * Checks whether every ring has been moved onto tower 2 or tower 3.
+     *
+     * @return true if the game is won.
+     */
+    public boolean isWon() {
+        return state.isComplete(1) || state.isComplete(2);
+    }
+
+    /**
+     * Returns the next move of the shortest way to win from the current state.
+     *
+     * @return The next optimal move, or null if the game is won.
+     */
+    public Move getHint() {
+        return MoveOracle.nextMove(state);
+    }
+
+    /**
+     * Returns the number of moves left on the shortest way to win from the current state.
+     *
+     * @return The remaining distance.
+     */
+    public long getMovesRemaining() {
+        return MoveOracle.distanceToGoal(state);
+    }
+
+    /**
+     * Returns the current tower state. Callers must treat it as read-only.
+     *
+     * @return The engine's tower state.
+     */
+    public TowerState getState() {
+        return state;
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    public int getValidMoveCount() {
+        return validMoveCount;
+    }
+
+    public int getInvalidMoveCount() {
+        return invalidMoveCount;
+    }
+
+    public int getOptimalMoveCount() {
+        return optimalMoveCount;
+    }
+}
@@ -4,51 +4,52 @@ package com.mirohaap.towerofhanoitutor;
  * The Move class represents a move in the Tower of Hanoi game.
  * It encapsulates the details of a move, including the disk number,
  * the source rod, and the destination rod.
+ * <p>
+ * A move is an immutable view of a {@link PackedMove}, so it can be passed around the UI and
+ * converted to and from the packed form used in move logs without copying fields.
+ * </p>
  */
-public class Move {
-    private int n;
-    private int from;
-    private int to;
-    private boolean valid;
+public final class Move {
+    private final int packed;
 
     public Move(int n, int from, int to, boolean valid) {
-        this.n = n;
-        this.from = from;
-        this.to = to;
-        this.valid = valid;
+        this(PackedMove.of(checkRing(n), checkTower(from), checkTower(to), valid));
     }
 
     public Move(int n, int from, int to) {
         this(n, from, to, false);
     }
 
-    public void setValid(boolean val) {
-        valid = val;
+    /**
+     * Creates a view of a packed move. Use {@link PackedMove#toMove(int)} outside this class.
+     *
+     * @param packed the packed move
+     */
+    Move(int packed) {
+        this.packed = packed;
     }
 
     public boolean isValid() {
-        return valid;
+        return PackedMove.isValid(packed);
     }
 
-
     /**
-     * Returns the disk number of the move.
+     * Returns the same move with its validity set, leaving this one unchanged.
      *
-     * @return the disk number
+     * @param valid whether the move is valid
+     * @return a move with the given validity
      */
-    public int getN() {
-        return n;
+    public Move withValid(boolean valid) {
+        return valid == isValid() ? this : new Move(PackedMove.withValid(packed, valid));
     }
 
     /**
-     * Sets the disk number of the move.
+     * Returns the disk number of the move.
      *
-     * @param n the disk number to set
-     * @return the Move object itself for method chaining
+     * @return the disk number
      */
-    public Move setN(int n) {
-        this.n = n;
-        return this;
+    public int getN() {
+        return PackedMove.ring(packed);
     }
 
     /**
@@ -57,18 +58,7 @@ public class Move {
      * @return the source rod
      */
     public int getFrom() {
-        return from;
-    }
-
-    /**
-     * Sets the source rod of the move.
-     *
-     * @param from the source rod to set
-     * @return the Move object itself for method chaining
-     */
-    public Move setFrom(int from) {
-        this.from = from;
-        return this;
+        return PackedMove.from(packed);
     }
 
     /**
@@ -77,22 +67,20 @@ public class Move {
      * @return the destination rod
      */
     public int getTo() {
-        return to;
+        return PackedMove.to(packed);
     }
 
     /**
-     * Sets the destination rod of the move.
+     * Returns the move packed into an {@code int}, with its validity flag.
      *
-     * @param to the destination rod to set
-     * @return the Move object itself for method chaining
+     * @return the packed move
      */
-    public Move setTo(int to) {
-        this.to = to;
-        return this;
+    public int toPacked() {
+        return packed;
     }
 
     public Move reversed() {
-        return new Move(n, to, from, valid);
+        return new Move(PackedMove.reversed(packed));
     }
 
     /**
@@ -117,6 +105,25 @@ public class Move {
             return false;
         }
 
-        return this.getN() == attemptedMove.getN() && this.getTo() == attemptedMove.getTo() && this.getFrom() == attemptedMove.getFrom();
+        return PackedMove.sameMove(packed, attemptedMove.packed);
+    }
+
+    @Override
+    public int hashCode() {
+        return PackedMove.withOptimal(PackedMove.withValid(packed, false), false);
+    }
+
+    private static int checkRing(int n) {
+        if (n < 1 || n > TowerState.MAX_RINGS) {
+            throw new IllegalArgumentException("Ring must be between 1 and " + TowerState.MAX_RINGS + ", got " + n);
+        }
+        return n;
+    }
+
+    private static int checkTower(int tower) {
+        if (tower < 1 || tower > TowerState.MAX_TOWERS) {
+            throw new IllegalArgumentException("Tower must be between 1 and " + TowerState.MAX_TOWERS + ", got " + tower);
+        }
+        return tower;
     }
-}
\ No newline at end of file
+}
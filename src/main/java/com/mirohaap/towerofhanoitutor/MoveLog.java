@@ -0,0 +1,117 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of {@link PackedMove}s backed by an {@code int[]}, used for move histories.
+ * Each move takes four bytes and nothing is boxed, so logging a move allocates nothing until
+ * the array has to grow.
+ */
+public class MoveLog {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[] moves;
+    private int size;
+
+    /**
+     * Creates an empty log.
+     */
+    public MoveLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty log with room for a number of moves before it has to grow.
+     *
+     * @param capacity The initial capacity.
+     */
+    public MoveLog(int capacity) {
+        moves = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Appends a move.
+     *
+     * @param packed The packed move.
+     */
+    public void add(int packed) {
+        if (size == moves.length) {
+            moves = Arrays.copyOf(moves, size + (size >> 1) + 1);
+        }
+        moves[size++] = packed;
+    }
+
+    /**
+     * Returns a move.
+     *
+     * @param index The index of the move, from 0 to {@link #size()} - 1.
+     * @return The packed move.
+     */
+    public int get(int index) {
+        checkIndex(index);
+        return moves[index];
+    }
+
+    /**
+     * Replaces a move, for instance to update its flags.
+     *
+     * @param index  The index of the move, from 0 to {@link #size()} - 1.
+     * @param packed The packed move to store.
+     */
+    public void set(int index, int packed) {
+        checkIndex(index);
+        moves[index] = packed;
+    }
+
+    /**
+     * Returns a move as a {@link Move}, for code that works with move objects.
+     *
+     * @param index The index of the move, from 0 to {@link #size()} - 1.
+     * @return A view of the move.
+     */
+    public Move getMove(int index) {
+        return PackedMove.toMove(get(index));
+    }
+
+    /**
+     * Removes and returns the last move.
+     *
+     * @return The packed move.
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IllegalStateException("The move log is empty");
+        }
+        return moves[--size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Removes every move, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the moves into a new array.
+     *
+     * @return The packed moves, oldest first.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(moves, size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Move " + index + " is outside the log of " + size + " moves.");
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * Finds the shortest way to finish the puzzle from any legal board, not just from the boards of
+ * the canonical solution. Both the next move and the remaining distance are computed in O(n)
+ * from the rings' positions, with no search.
+ * <p>
+ * Walking from the largest ring to the smallest, each ring either already sits on the tower it
+ * has to end on, or it must make exactly one more move to get there. In the second case every
+ * smaller ring first has to be gathered on the third tower, which becomes their target, at a cost
+ * of {@code 2^(r-1) - 1} moves plus the one move of ring {@code r}. The next move of the shortest
+ * solution is the move of the smallest ring that is out of place.
+ * </p>
+ * <p>
+ * The game is won with every ring on tower 2 or tower 3, so "the goal" is whichever of those two
+ * is closer, with ties going to tower 3. Towers are indexed from 0 here, like {@link TowerState};
+ * moves use towers numbered from 1. Distances are unsigned, so they also cover 64 rings.
+ * </p>
+ * <p>
+ * Only three-tower boards are supported; games on more towers are solved by
+ * {@link FrameStewartSolver}.
+ * </p>
+ */
+public final class MoveOracle {
+    private static final int[] GOALS = {2, 1}; // Tower indexes that win, in order of preference on a tie.
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MoveOracle() {
+    }
+
+    /**
+     * Returns the number of moves needed to gather every ring on a tower.
+     *
+     * @param state  the board
+     * @param target the index of the tower to gather the rings on
+     * @return the length of the shortest solution, as an unsigned value
+     */
+    public static long distance(TowerState state, int target) {
+        return distance(state, state.getRingCount(), target);
+    }
+
+    /**
+     * Returns the number of moves needed to gather the smallest rings on a tower, ignoring the
+     * larger ones.
+     *
+     * @param state  the board
+     * @param rings  the number of smallest rings to gather
+     * @param target the index of the tower to gather them on
+     * @return the length of the shortest solution, as an unsigned value
+     */
+    static long distance(TowerState state, int rings, int target) {
+        long distance = 0;
+        for (int ring = rings; ring >= 1; ring--) {
+            int tower = state.getTowerOf(ring);
+            if (tower != target) {
+                distance += 1L << (ring - 1);
+                target = 3 - tower - target; // The third tower, since the indexes sum to 3
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * Returns the tower of the winning pair, tower 2 or tower 3, that is fewer moves away.
+     *
+     * @param state the board
+     * @return the index of the nearest goal tower
+     */
+    public static int nearestGoal(TowerState state) {
+        int nearest = GOALS[0];
+        long best = distance(state, nearest);
+        for (int i = 1; i < GOALS.length; i++) {
+            if (Long.compareUnsigned(distance(state, GOALS[i]), best) < 0) {
+                nearest = GOALS[i];
+                best = distance(state, nearest);
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Returns the number of moves left to win, going to the nearest goal tower.
+     *
+     * @param state the board
+     * @return the remaining distance, as an unsigned value
+     */
+    public static long distanceToGoal(TowerState state) {
+        return distance(state, nearestGoal(state));
+    }
+
+    /**
+     * Returns the next move of the shortest way to gather every ring on a tower.
+     *
+     * @param state  the board
+     * @param target the index of the tower to gather the rings on
+     * @return the next move, or null if every ring is already there
+     */
+    public static Move nextMove(TowerState state, int target) {
+        long packed = nextMovePacked(state, state.getRingCount(), target);
+        return packed < 0 ? null : new Move((int) (packed >>> 4), (int) (packed >>> 2 & 3) + 1, (int) (packed & 3) + 1);
+    }
+
+    /**
+     * Returns the next move of the shortest way to win, going to the nearest goal tower.
+     *
+     * @param state the board
+     * @return the next move, or null if the game is won
+     */
+    public static Move nextMove(TowerState state) {
+        return state.isComplete(GOALS[0]) || state.isComplete(GOALS[1]) ? null : nextMove(state, nearestGoal(state));
+    }
+
+    /**
+     * Finds the goal tower that a move brings one step closer, if it is the next move of a
+     * shortest way to win. When both goals are equally far, as at the start of a game, a move
+     * toward either counts. This path allocates nothing.
+     *
+     * @param state the board before the move
+     * @param ring  the ring being moved
+     * @param from  the tower it is taken from, numbered from 1
+     * @param to    the tower it is placed on, numbered from 1
+     * @return the index of the goal tower the move heads for, or -1 if the move is not optimal
+     */
+    public static int goalAdvancedBy(TowerState state, int ring, int from, int to) {
+        long nearest = distanceToGoal(state);
+        long packed = (long) ring << 4 | (long) (from - 1) << 2 | (to - 1);
+        for (int goal : GOALS) {
+            if (distance(state, goal) == nearest && nextMovePacked(state, state.getRingCount(), goal) == packed) {
+                return goal;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the next move that gathers the smallest rings on a tower, packed as
+     * {@code ring << 4 | from << 2 | to} with zero-based towers.
+     *
+     * @param state  the board
+     * @param rings  the number of smallest rings to gather
+     * @param target the index of the tower to gather them on
+     * @return the packed move, or -1 if those rings are already there
+     */
+    static long nextMovePacked(TowerState state, int rings, int target) {
+        long next = -1;
+        for (int ring = rings; ring >= 1; ring--) {
+            int tower = state.getTowerOf(ring);
+            if (tower != target) {
+                next = (long) ring << 4 | (long) tower << 2 | target;
+                target = 3 - tower - target;
+            }
+        }
+        return next;
+    }
+}
@@ -0,0 +1,148 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * Computes the optimal solution of the Tower of Hanoi puzzle (all rings from tower 1 to tower 3)
+ * in closed form. Instead of materializing the 2^n - 1 moves, any move is derived directly from
+ * the bit pattern of its index, so lookups are O(1) and need no memory beyond the arguments.
+ * <p>
+ * In the optimal solution, ring {@code r} moves on every step whose 1-based number has exactly
+ * {@code r - 1} trailing zero bits, and each ring cycles through the towers in a fixed direction
+ * that alternates with the parity of {@code numRings - r}.
+ * </p>
+ */
+public final class OptimalSolution {
+    /**
+     * The largest ring count whose move count (2^n - 1) still fits in a {@code long}. This is
+     * the largest game that can be played: {@link TowerState} can hold {@link TowerState#MAX_RINGS}
+     * rings, but the tutor's cursor and session recordings cannot count the moves of more.
+     */
+    public static final int MAX_RINGS = 63;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private OptimalSolution() {
+    }
+
+    /**
+     * Returns the number of moves in the optimal solution for the given number of rings.
+     *
+     * @param numRings the number of rings in the puzzle
+     * @return 2^numRings - 1
+     */
+    public static long totalMoves(int numRings) {
+        checkRingCount(numRings);
+        return (1L << numRings) - 1;
+    }
+
+    /**
+     * Returns the move at the given zero-based position of the optimal solution.
+     *
+     * @param numRings the number of rings in the puzzle
+     * @param index    the zero-based position of the move in the solution
+     * @return the move made at that position, with towers numbered from 1
+     */
+    public static Move moveAt(int numRings, long index) {
+        if (index < 0 || index >= totalMoves(numRings)) {
+            throw new IndexOutOfBoundsException("Move " + index + " is outside the solution for " + numRings + " rings.");
+        }
+        long step = index + 1;
+        int ring = Long.numberOfTrailingZeros(step) + 1;
+        return new Move(ring, towerOf(numRings, ring, index) + 1, towerOf(numRings, ring, step) + 1);
+    }
+
+    /**
+     * Returns the full tower configuration after a number of moves of the optimal solution,
+     * in O(n) time and without replaying the moves that lead there.
+     *
+     * @param numRings the number of rings in the puzzle
+     * @param moves    the number of moves made, from 0 to {@link #totalMoves(int)}
+     * @return an array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}
+     */
+    public static int[] stateAt(int numRings, long moves) {
+        if (moves < 0 || moves > totalMoves(numRings)) {
+            throw new IndexOutOfBoundsException("Step " + moves + " is outside the solution for " + numRings + " rings.");
+        }
+        int[] ringTowers = new int[numRings];
+        for (int ring = 1; ring <= numRings; ring++) {
+            ringTowers[ring - 1] = towerOf(numRings, ring, moves) + 1;
+        }
+        return ringTowers;
+    }
+
+    /**
+     * Returns where the next macro step ends when the {@code subtowerSize} smallest rings are
+     * treated as one unit. In the optimal solution those rings are stacked together after every
+     * move count {@code c} with {@code c mod 2^k} equal to 0 or {@code 2^k - 1}, so a macro step is
+     * either one whole transfer of the subtower or one move of a larger ring.
+     *
+     * @param numRings     the number of rings in the puzzle
+     * @param moves        the number of moves made so far
+     * @param subtowerSize the number of smallest rings moved as a unit, at least 1
+     * @return the move count at the end of the next macro step, at most {@link #totalMoves(int)}
+     */
+    public static long nextMacroBoundary(int numRings, long moves, int subtowerSize) {
+        long period = 1L << subtowerSize;
+        long offset = Long.remainderUnsigned(moves, period);
+        long next = offset == period - 1 ? moves + 1 : moves - offset + period - 1;
+        return Math.min(next, totalMoves(numRings));
+    }
+
+    /**
+     * Returns the smallest subtower size for which the rest of the solution takes no more than
+     * {@code maxSteps} macro steps. A size of 1 means every move is its own step.
+     *
+     * @param numRings the number of rings in the puzzle
+     * @param moves    the number of moves made so far
+     * @param maxSteps the number of steps that fit in the available time
+     * @return the subtower size to use, from 1 to {@code numRings}
+     */
+    public static int subtowerSizeFor(int numRings, long moves, long maxSteps) {
+        long total = totalMoves(numRings);
+        for (int size = 1; size < numRings; size++) {
+            if (macroBoundariesUpTo(total, size) - macroBoundariesUpTo(moves, size) <= maxSteps) {
+                return size;
+            }
+        }
+        return numRings;
+    }
+
+    /**
+     * Counts the macro step boundaries in {@code 1..moves}.
+     *
+     * @param moves        the last move count to include
+     * @param subtowerSize the number of smallest rings moved as a unit
+     * @return the number of move counts {@code c} in range with {@code c mod 2^k} equal to 0 or {@code 2^k - 1}
+     */
+    private static long macroBoundariesUpTo(long moves, int subtowerSize) {
+        long period = 1L << subtowerSize;
+        return Long.divideUnsigned(moves, period) + Long.divideUnsigned(moves + 1, period);
+    }
+
+    /**
+     * Returns the zero-based tower a ring sits on after a number of moves of the optimal solution.
+     *
+     * @param numRings the number of rings in the puzzle
+     * @param ring     the ring to locate, from 1 (smallest) to numRings
+     * @param moves    the number of moves made so far
+     * @return the zero-based tower index (0, 1, or 2)
+     */
+    static int towerOf(int numRings, int ring, long moves) {
+        // Ring r has moved once for every step number with r - 1 trailing zeros, i.e. round(moves / 2^r).
+        // The sum cannot exceed 2^64 - 1, so the unsigned shift gives the exact result.
+        long ringMoves = (moves + (1L << (ring - 1))) >>> ring;
+        int direction = ((numRings - ring) & 1) == 0 ? 2 : 1;
+        return (int) (Long.remainderUnsigned(ringMoves, 3) * direction % 3);
+    }
+
+    /**
+     * Verifies that the ring count can be solved with move indices that fit in a {@code long}.
+     *
+     * @param numRings the number of rings to check
+     */
+    private static void checkRingCount(int numRings) {
+        if (numRings < 1 || numRings > MAX_RINGS) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + MAX_RINGS + ", got " + numRings);
+        }
+    }
+}
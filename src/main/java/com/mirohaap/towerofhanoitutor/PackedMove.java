@@ -0,0 +1,107 @@
+package com.mirohaap.towerofhanoitutor;
+
+/**
+ * Packs a move into a single {@code int}, so long move sequences can be held in primitive arrays
+ * instead of as {@link Move} objects. The destination tower minus one is kept in bits 0-2, the
+ * source tower minus one in bits 3-5, and the ring in bits 6-12, which covers up to 64 rings on
+ * up to {@link TowerState#MAX_TOWERS} towers. Bit 13 flags a move as valid, that is, applied to
+ * the board, and bit 14 flags it as scored optimal by the tutor. Towers are numbered from 1,
+ * like in {@link Move}.
+ */
+public final class PackedMove {
+    private static final int TOWER_BITS = 3, TOWER_MASK = (1 << TOWER_BITS) - 1;
+    private static final int RING_SHIFT = 2 * TOWER_BITS, RING_MASK = 0x7F;
+    private static final int VALID = 1 << 13, OPTIMAL = 1 << 14;
+    private static final int MOVE_MASK = VALID - 1; // Every bit but the flags
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private PackedMove() {
+    }
+
+    /**
+     * Packs a move, with no flags set.
+     *
+     * @param ring the ring being moved, from 1 to {@link TowerState#MAX_RINGS}
+     * @param from the tower it is taken from, numbered from 1
+     * @param to   the tower it is placed on, numbered from 1
+     * @return the packed move
+     */
+    public static int of(int ring, int from, int to) {
+        return ring << RING_SHIFT | (from - 1) << TOWER_BITS | (to - 1);
+    }
+
+    /**
+     * Packs a move and whether it is valid.
+     *
+     * @param ring  the ring being moved, from 1 to {@link TowerState#MAX_RINGS}
+     * @param from  the tower it is taken from, numbered from 1
+     * @param to    the tower it is placed on, numbered from 1
+     * @param valid whether the move was applied to the board
+     * @return the packed move
+     */
+    public static int of(int ring, int from, int to, boolean valid) {
+        return withValid(of(ring, from, to), valid);
+    }
+
+    public static int ring(int packed) {
+        return packed >>> RING_SHIFT & RING_MASK;
+    }
+
+    public static int from(int packed) {
+        return (packed >>> TOWER_BITS & TOWER_MASK) + 1;
+    }
+
+    public static int to(int packed) {
+        return (packed & TOWER_MASK) + 1;
+    }
+
+    public static boolean isValid(int packed) {
+        return (packed & VALID) != 0;
+    }
+
+    public static boolean isOptimal(int packed) {
+        return (packed & OPTIMAL) != 0;
+    }
+
+    public static int withValid(int packed, boolean valid) {
+        return valid ? packed | VALID : packed & ~VALID;
+    }
+
+    public static int withOptimal(int packed, boolean optimal) {
+        return optimal ? packed | OPTIMAL : packed & ~OPTIMAL;
+    }
+
+    /**
+     * Checks whether two packed moves move the same ring between the same towers, ignoring their flags.
+     *
+     * @param a a packed move
+     * @param b another packed move
+     * @return {@code true} if both describe the same move
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & MOVE_MASK) == 0;
+    }
+
+    /**
+     * Returns the move that undoes a packed move, keeping its flags.
+     *
+     * @param packed the packed move
+     * @return the same ring moved back from the destination to the source
+     */
+    public static int reversed(int packed) {
+        int from = packed >>> TOWER_BITS & TOWER_MASK, to = packed & TOWER_MASK;
+        return packed & ~(TOWER_MASK << TOWER_BITS | TOWER_MASK) | to << TOWER_BITS | from;
+    }
+
+    /**
+     * Wraps a packed move in a {@link Move} for code that works with move objects.
+     *
+     * @param packed the packed move
+     * @return a move viewing the same ring, towers and flags
+     */
+    public static Move toMove(int packed) {
+        return new Move(packed);
+    }
+}
@@ -0,0 +1,184 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Writes the optimal solution of the classic game (all rings from tower 1 to tower 3) in bulk,
+ * as {@link PackedMove}s in a primitive array or an off-heap buffer, using every core.
+ * <p>
+ * The solution for {@code n} rings is the solution for {@code n - 1} rings to the spare tower,
+ * one move of ring {@code n}, then the solution for {@code n - 1} rings from the spare tower, so
+ * the index range of every part of the recursion is known before any move is written. Large
+ * parts are split at those boundaries into {@link ForkJoinPool} tasks that write disjoint ranges
+ * of the output; small parts are written in a tight loop with the closed form of
+ * {@link OptimalSolution}, mapped onto the part's towers.
+ * </p>
+ * <p>
+ * An array holds at most the 2^30 - 1 moves of 30 rings. Longer solutions can be written a
+ * window at a time with {@link #generate(int, long, IntBuffer)}, which only visits the parts of
+ * the recursion that overlap the window.
+ * </p>
+ */
+public final class ParallelSolutionGenerator {
+    /**
+     * The largest ring count whose whole solution fits in an {@code int[]}.
+     */
+    public static final int MAX_ARRAY_RINGS = 30;
+    /**
+     * The largest ring count whose whole solution fits in a direct buffer, whose size in bytes is an {@code int}.
+     */
+    public static final int MAX_DIRECT_RINGS = 29;
+
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 14; // Parts with fewer moves are written on one thread
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private ParallelSolutionGenerator() {
+    }
+
+    /**
+     * Writes the whole optimal solution to a new array.
+     *
+     * @param numRings the number of rings, from 1 to {@link #MAX_ARRAY_RINGS}
+     * @return the packed moves of the solution, in order
+     */
+    public static int[] generate(int numRings) {
+        checkRingCount(numRings, MAX_ARRAY_RINGS);
+        int[] moves = new int[(int) OptimalSolution.totalMoves(numRings)];
+        ForkJoinPool.commonPool().invoke(new Part(moves, null, 0, 0, moves.length, 0, numRings, 0, 2, 1));
+        return moves;
+    }
+
+    /**
+     * Writes the whole optimal solution to a new direct buffer, outside the Java heap.
+     *
+     * @param numRings the number of rings, from 1 to {@link #MAX_DIRECT_RINGS}
+     * @return a buffer in native byte order holding the packed moves of the solution, in order
+     */
+    public static IntBuffer generateDirect(int numRings) {
+        checkRingCount(numRings, MAX_DIRECT_RINGS);
+        int totalMoves = (int) OptimalSolution.totalMoves(numRings);
+        IntBuffer moves = ByteBuffer.allocateDirect(totalMoves * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+        generate(numRings, 0, moves);
+        moves.flip();
+        return moves;
+    }
+
+    /**
+     * Writes a window of the optimal solution to a buffer, starting at the buffer's position and
+     * filling its remaining space, or stopping at the end of the solution. Like a relative bulk
+     * put, the position is advanced past the moves written.
+     *
+     * @param numRings  the number of rings, from 1 to {@link OptimalSolution#MAX_RINGS}
+     * @param firstMove the zero-based position in the solution of the first move to write
+     * @param out       the buffer to write to
+     * @return the number of moves written
+     */
+    public static int generate(int numRings, long firstMove, IntBuffer out) {
+        long totalMoves = OptimalSolution.totalMoves(numRings);
+        if (firstMove < 0 || firstMove > totalMoves) {
+            throw new IndexOutOfBoundsException("Move " + firstMove + " is outside the solution for " + numRings + " rings.");
+        }
+        int count = (int) Math.min(out.remaining(), totalMoves - firstMove);
+        if (count > 0) {
+            ForkJoinPool.commonPool().invoke(new Part(null, out, out.position() - firstMove, firstMove, firstMove + count, 0, numRings, 0, 2, 1));
+            out.position(out.position() + count);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the moves of one part of the recursion that fall in the window, forking its two
+     * halves when the overlap is large. The part moves the {@code rings} smallest rings between
+     * two towers, and the move at solution index {@code i} goes to output index {@code shift + i}.
+     */
+    private static final class Part extends RecursiveAction {
+        private final int[] array; // Exactly one of array and buffer is set.
+        private final IntBuffer buffer;
+        private final long shift, windowStart, windowEnd;
+        private final long start;
+        private final int rings, from, to, spare;
+
+        Part(int[] array, IntBuffer buffer, long shift, long windowStart, long windowEnd,
+             long start, int rings, int from, int to, int spare) {
+            this.array = array;
+            this.buffer = buffer;
+            this.shift = shift;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.start = start;
+            this.rings = rings;
+            this.from = from;
+            this.to = to;
+            this.spare = spare;
+        }
+
+        @Override
+        protected void compute() {
+            long end = start + (1L << rings) - 1;
+            long first = Math.max(start, windowStart), last = Math.min(end, windowEnd);
+            if (last - first <= SEQUENTIAL_THRESHOLD) {
+                writeRange(first, last);
+                return;
+            }
+            long middle = start + (1L << (rings - 1)) - 1; // Where ring `rings` moves, between the two halves
+            if (middle >= windowStart && middle < windowEnd) {
+                put(middle, PackedMove.of(rings, from + 1, to + 1));
+            }
+            Part before = new Part(array, buffer, shift, windowStart, windowEnd, start, rings - 1, from, spare, to);
+            Part after = new Part(array, buffer, shift, windowStart, windowEnd, middle + 1, rings - 1, spare, to, from);
+            if (middle + 1 >= windowEnd) {
+                before.compute();
+            } else if (middle <= windowStart) {
+                after.compute();
+            } else {
+                invokeAll(before, after);
+            }
+        }
+
+        /**
+         * Writes the moves of this part from one solution index to another. The towers of the
+         * part's rings are found once from the closed form, then each ring steps one tower along
+         * its fixed direction whenever it moves, so each move costs a few instructions.
+         *
+         * @param first the solution index of the first move to write
+         * @param last  the solution index after the last move to write
+         */
+        private void writeRange(long first, long last) {
+            int[] towers = {from, spare, to}; // Maps the towers of the plain solution onto this part's
+            int[] ringTowers = new int[rings + 1]; // Plain-solution tower of each ring, indexed by ring number
+            for (int ring = 1; ring <= rings; ring++) {
+                ringTowers[ring] = OptimalSolution.towerOf(rings, ring, first - start);
+            }
+            for (long index = first; index < last; index++) {
+                int ring = Long.numberOfTrailingZeros(index - start + 1) + 1;
+                int source = ringTowers[ring], target = source + (((rings - ring) & 1) == 0 ? 2 : 1);
+                if (target >= 3) {
+                    target -= 3;
+                }
+                ringTowers[ring] = target;
+                put(index, PackedMove.of(ring, towers[source] + 1, towers[target] + 1));
+            }
+        }
+
+        private void put(long index, int packed) {
+            int at = (int) (shift + index);
+            if (array != null) {
+                array[at] = packed;
+            } else {
+                buffer.put(at, packed);
+            }
+        }
+    }
+
+    private static void checkRingCount(int numRings, int maxRings) {
+        if (numRings < 1 || numRings > maxRings) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + maxRings + ", got " + numRings);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.Random;
+
+/**
+ * The kinds of game that can be started from the start screen.
+ */
+public enum PuzzleMode {
+    /**
+     * Every ring starts on tower 1; the game is won with every ring on tower 2 or tower 3.
+     */
+    CLASSIC("Classic"),
+    /**
+     * The rings start scattered at random; the game is won with every ring on tower 2 or tower 3.
+     */
+    SCRAMBLED("Scrambled"),
+    /**
+     * The rings start scattered at random and must be arranged to match another random configuration.
+     */
+    TARGET("Match target");
+
+    private final String label;
+
+    PuzzleMode(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Picks the configuration a game of this kind starts from.
+     *
+     * @param ringCount The number of rings.
+     * @param random    The source of randomness for scrambled starts.
+     * @return The starting configuration.
+     */
+    public TowerState randomStart(int ringCount, Random random) {
+        TowerState start = new TowerState(ringCount);
+        if (this != CLASSIC) {
+            do {
+                scramble(start, random);
+            } while (start.isComplete(1) || start.isComplete(2)); // A scrambled game must not start won.
+        }
+        return start;
+    }
+
+    /**
+     * Picks the configuration a game of this kind must reach.
+     *
+     * @param start  The configuration the game starts from.
+     * @param random The source of randomness for targets.
+     * @return The configuration to reach, or null if any full tower other than tower 1 wins.
+     */
+    public TowerState randomGoal(TowerState start, Random random) {
+        if (this != TARGET) {
+            return null;
+        }
+        TowerState goal = new TowerState(start.getRingCount());
+        do {
+            scramble(goal, random);
+        } while (goal.matches(start));
+        return goal;
+    }
+
+    /**
+     * Puts every ring of a configuration on a random tower. Any assignment is legal, since each
+     * tower stacks its rings from largest to smallest.
+     *
+     * @param state  The configuration to scramble.
+     * @param random The source of randomness.
+     */
+    private static void scramble(TowerState state, Random random) {
+        int[] towers = new int[state.getRingCount()];
+        for (int i = 0; i < towers.length; i++) {
+            towers[i] = random.nextInt(TowerState.TOWER_COUNT) + 1;
+        }
+        state.load(towers);
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
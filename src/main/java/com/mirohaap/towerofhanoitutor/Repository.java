@@ -2,46 +2,50 @@ package com.mirohaap.towerofhanoitutor;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Repository class for managing the state of the Tower of Hanoi game.
  * It keeps track of the towers, moves, and checks for optimal moves.
  */
 public class Repository {
-    private static Repository _instance;
     private PropertyChangeSupport changes = new PropertyChangeSupport(this);
-    // For each tower, [0] is the bottom, last index is the top.
-    private List<Stack<Integer>> towers;
-    private ArrayList<Boolean> optimalMoves = new ArrayList<>();
-    private Stack<Move> moves;
+    private TowerState state;
+    private TowerState goal; // The configuration that wins, or null if any full tower other than tower 1 wins
+    private BitSet optimalMoves = new BitSet(); // Bit i is set if the i-th scored move was optimal.
+    private int scoredMoveCount, optimalMoveCount;
+    private final MoveLog moves = new MoveLog(); // Packed moves, with their valid and optimal flags
+    private int validMoveCount, invalidMoveCount;
     private boolean initialized;
+    private boolean handedOut; // Whether getInstance has returned this instance before
     private long startTime;
+    private SessionRecorder recorder; // Records the moves of the current game, or null if it is not being recorded
 
     /**
      * Private constructor for Singleton pattern.
      */
     private Repository() {
-        towers = new ArrayList<>();
-        moves = new Stack<>();
         initialized = false;
         startTime = System.currentTimeMillis();
     }
 
     /**
-     * Verifies if the move made is optimal by comparing it to a list of best moves.
+     * Verifies if the move made is optimal by comparing it to the tutor's last best move.
      *
      * @param move The move to verify.
+     * @return true if the move was scored as optimal.
      */
-    public void verifyOptimal(Move move) {
-        ArrayList<Move> bestMoves = Tutor.getInstance().getBestMoves();
-        if (bestMoves.get(Tutor.getInstance().getMoveNumber() - 1).equals(move)) {
-            optimalMoves.add(true);
-        } else {
-            optimalMoves.add(false);
+    public boolean verifyOptimal(Move move) {
+        boolean optimal = move.isValid() && move.equals(Tutor.getInstance().getLastBestMove());
+        if (optimal) {
+            optimalMoves.set(scoredMoveCount);
+            optimalMoveCount++;
         }
+        scoredMoveCount++;
+        return optimal;
     }
 
     /**
@@ -63,51 +67,171 @@ public class Repository {
     }
 
     /**
-     * Initializes the towers with a specified number of rings.
+     * Initializes the three towers with a specified number of rings.
      *
      * @param ringCount The number of rings to initialize the first tower with.
      */
     public void init(int ringCount) {
-        towers.clear();
-        for (int i = 0; i < 3; i++) {
-            towers.add(new Stack<>());
+        init(ringCount, TowerState.TOWER_COUNT);
+    }
+
+    /**
+     * Initializes the towers with a specified number of rings.
+     *
+     * @param ringCount  The number of rings to initialize the first tower with.
+     * @param towerCount The number of towers, from {@link TowerState#TOWER_COUNT} to {@link TowerState#MAX_TOWERS}.
+     */
+    public void init(int ringCount, int towerCount) {
+        setRecorder(null);
+        state = new TowerState(ringCount, towerCount);
+        goal = null;
+        initialized = true;
+    }
+
+    /**
+     * Sets up a puzzle that starts from any configuration, and optionally has to end in a given
+     * one. Puzzles are not recorded, since recordings always start with every ring on tower 1.
+     *
+     * @param start The configuration to start from, with the initialized ring count.
+     * @param goal  The configuration that wins, or null if any full tower other than tower 1 wins.
+     */
+    public void startPuzzle(TowerState start, TowerState goal) {
+        setRecorder(null);
+        int[] ringTowers = new int[start.getRingCount()];
+        start.getTowers(ringTowers);
+        loadState(ringTowers);
+        this.goal = goal;
+    }
+
+    /**
+     * Starts recording every move of the current game, replacing any recording in progress.
+     * The previous recorder is closed.
+     *
+     * @param recorder The recorder to write moves to, or null to stop recording.
+     */
+    public void setRecorder(SessionRecorder recorder) {
+        if (this.recorder != null) {
+            try {
+                this.recorder.close();
+            } catch (IOException e) {
+                System.out.println("Error closing session recording.");
+                e.printStackTrace();
+            }
+        }
+        this.recorder = recorder;
+    }
+
+    /**
+     * Closes the recording in progress, if any. Called when the application exits.
+     */
+    public static void shutdown() {
+        Holder.INSTANCE.setRecorder(null);
+    }
+
+    /**
+     * Replaces the tower configuration with the given one. The move history no longer
+     * describes how the board got here, so it is cleared, and the recording in progress, if
+     * any, records the jump.
+     *
+     * @param ringTowers An array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}.
+     */
+    public void loadState(int[] ringTowers) {
+        state.load(ringTowers);
+        if (recorder != null) {
+            try {
+                recorder.recordJump(state);
+            } catch (IOException e) {
+                System.out.println("Error writing session recording, recording stopped.");
+                e.printStackTrace();
+                setRecorder(null);
+            }
         }
-        for (int i = ringCount; i > 0; i--) {
-            towers.get(0).push(i);
+        moves.clear();
+        validMoveCount = 0;
+        invalidMoveCount = 0;
+    }
+
+    /**
+     * Jumps to a configuration of the optimal solution without logging the moves that lead
+     * there, then notifies listeners as if the last of those moves had just been made. Like
+     * {@link #loadState(int[])}, this clears the move history, so the skipped moves cannot be
+     * taken back and are not counted or scored for analytics.
+     *
+     * @param ringTowers An array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}.
+     */
+    public void jumpTo(int[] ringTowers) {
+        loadState(ringTowers);
+        if (!checkWin()) {
+            changes.firePropertyChange("move", null, null);
+        } else {
+            setRecorder(null); // The game is over, so the recording is complete.
+            changes.firePropertyChange("win", null, null);
         }
-        initialized = true;
     }
 
     /**
-     * Returns a copy of the tower at the specified index.
+     * Returns a copy of the tower at the specified index. Prefer {@link #getState()} on hot
+     * paths, since this allocates a new list.
      *
      * @param index The index of the tower.
-     * @return A copy of the tower as a List.
+     * @return A copy of the tower as a List, bottom ring first.
      */
     public List<Integer> getTowerByIndex(int index) {
-        if (index < towers.size() && index >= 0) {
-            return new ArrayList<>(towers.get(index));
+        checkTowerIndex(index);
+        List<Integer> tower = new ArrayList<>(state.getSize(index));
+        long mask = state.getMask(index);
+        while (mask != 0) {
+            int highest = 63 - Long.numberOfLeadingZeros(mask);
+            tower.add(highest + 1);
+            mask &= ~(1L << highest);
         }
-        throw new IndexOutOfBoundsException("Towers must be referenced using indexes 0, 1, or 2.");
+        return tower;
     }
 
     /**
-     * Returns a list of the top elements of each tower.
+     * Returns the number of rings on the tower at the specified index.
      *
-     * @return A list containing the top elements of each tower.
-     */
-    public List<Integer> getTops() {
-        List<Integer> tops = new ArrayList<>();
-        for (Stack<Integer> tower : towers) {
-            if (tower.isEmpty()) {
-                tops.add(-1);
-            } else {
-                tops.add(tower.peek());
-            }
+     * @param index The index of the tower.
+     * @return The height of the tower.
+     */
+    public int getTowerSize(int index) {
+        checkTowerIndex(index);
+        return state.getSize(index);
+    }
+
+    /**
+     * Returns the top ring of the tower at the specified index.
+     *
+     * @param index The index of the tower.
+     * @return The top ring, or -1 if the tower is empty.
+     */
+    public int getTop(int index) {
+        checkTowerIndex(index);
+        return state.getTop(index);
+    }
+
+    /**
+     * Returns the top elements of each tower.
+     *
+     * @return An array containing the top ring of each tower, or -1 for an empty tower.
+     */
+    public int[] getTops() {
+        int[] tops = new int[state.getTowerCount()];
+        for (int i = 0; i < tops.length; i++) {
+            tops[i] = state.getTop(i);
         }
         return tops;
     }
 
+    /**
+     * Returns the primitive state of the towers. Callers must treat it as read-only.
+     *
+     * @return The current tower state.
+     */
+    public TowerState getState() {
+        return state;
+    }
+
     /**
      * Applies a move to the towers.
      *
@@ -115,8 +239,7 @@ public class Repository {
      */
     public void applyMove(Move move) {
         if (move.isValid()) {
-            Integer ring = towers.get(move.getFrom() - 1).pop();
-            towers.get(move.getTo() - 1).push(ring);
+            state.moveTop(move.getFrom() - 1, move.getTo() - 1);
         }
         logMove(move);
     }
@@ -127,7 +250,24 @@ public class Repository {
      * @return true if the game is won, false otherwise.
      */
     public boolean checkWin() {
-        return (towers.get(0).isEmpty() && towers.get(2).isEmpty()) || (towers.get(0).isEmpty() && towers.get(1).isEmpty());
+        if (goal != null) {
+            return state.matches(goal);
+        }
+        for (int tower = 1; tower < state.getTowerCount(); tower++) {
+            if (state.isComplete(tower)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the configuration that wins the current game. Callers must treat it as read-only.
+     *
+     * @return The goal configuration, or null if any full tower other than tower 1 wins.
+     */
+    public TowerState getGoal() {
+        return goal;
     }
 
     /**
@@ -136,33 +276,59 @@ public class Repository {
      * @param move The move to log.
      */
     private void logMove(Move move) {
-        moves.push(move);
-        if (Tutor.getInstance().isEnabled()) {
-            verifyOptimal(move);
+        if (move.isValid()) {
+            validMoveCount++;
+        } else {
+            invalidMoveCount++;
+        }
+        boolean optimal = Tutor.getInstance().isEnabled() && verifyOptimal(move);
+        moves.add(PackedMove.withOptimal(move.toPacked(), optimal));
+        if (recorder != null) {
+            try {
+                recorder.record(move, optimal);
+            } catch (IOException e) {
+                System.out.println("Error writing session recording, recording stopped.");
+                e.printStackTrace();
+                setRecorder(null);
+            }
         }
         if (!checkWin()) {
             changes.firePropertyChange("move", null, move);
         } else {
+            setRecorder(null); // The game is over, so the recording is complete.
             changes.firePropertyChange("win", null, move);
         }
     }
 
     /**
-     * Pops the last valid move from the move stack, reverting the move.
+     * Pops the last valid move from the move log, reverting the move.
      *
      * @return The last valid move that was made.
      */
     public Move popLastValidMove() {
-        Move move;
+        int packed;
         do {
             if (moves.isEmpty()) {
                 throw new RuntimeException("No valid moves have been logged yet!");
             }
-            move = moves.pop();
-        } while (!move.isValid());
+            packed = moves.removeLast();
+            if (!PackedMove.isValid(packed)) {
+                invalidMoveCount--;
+            }
+        } while (!PackedMove.isValid(packed));
 
-        Integer ring = towers.get(move.getTo() - 1).pop();
-        towers.get(move.getFrom() - 1).push(ring);
+        validMoveCount--;
+        Move move = PackedMove.toMove(packed);
+        state.moveTop(move.getTo() - 1, move.getFrom() - 1);
+        if (recorder != null) {
+            try {
+                recorder.recordUndo(move);
+            } catch (IOException e) {
+                System.out.println("Error writing session recording, recording stopped.");
+                e.printStackTrace();
+                setRecorder(null);
+            }
+        }
         return move;
     }
 
@@ -181,7 +347,7 @@ public class Repository {
      * @return The number of valid moves.
      */
     public int getValidMoveCount() {
-        return (int) moves.stream().filter(Move::isValid).count();
+        return validMoveCount;
     }
 
     /**
@@ -190,15 +356,16 @@ public class Repository {
      * @return The number of invalid moves.
      */
     public int getInvalidMoveCount() {
-        return (int) moves.stream().filter(m -> !m.isValid()).count();
+        return invalidMoveCount;
     }
 
     /**
-     * Returns the stack of moves made.
+     * Returns the log of moves made, oldest first, as packed moves flagged valid and optimal.
+     * Callers must treat it as read-only.
      *
-     * @return The stack of moves.
+     * @return The move log.
      */
-    public Stack<Move> getMoves() {
+    public MoveLog getMoves() {
         return moves;
     }
 
@@ -208,42 +375,52 @@ public class Repository {
      * @param num The number to check.
      * @return true if the number is at the top of any tower, false otherwise.
      */
-    public boolean isTop(Integer num) {
-        for (Stack<Integer> tower : towers) {
-            if (!tower.isEmpty() && tower.peek().equals(num)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean isTop(int num) {
+        return num >= 1 && num <= state.getRingCount() && state.isTop(num);
     }
 
     /**
      * Finds the tower that a given ring number is on.
      *
      * @param num The ring number to find.
-     * @return The index of the tower the ring is on, or -1 if not found.
+     * @return The number of the tower the ring is on, numbered from 1, or -1 if not found.
      */
-    public int getTower(Integer num) {
-        for (int i = 0; i < towers.size(); i++) {
-            if (towers.get(i).contains(num)) {
-                return i + 1;
-            }
+    public int getTower(int num) {
+        if (num < 1 || num > state.getRingCount()) {
+            return -1;
+        }
+        return state.getTowerOf(num) + 1;
+    }
+
+    /**
+     * Verifies that a tower index refers to one of the towers.
+     *
+     * @param index The index to check.
+     */
+    private void checkTowerIndex(int index) {
+        if (index < 0 || index >= state.getTowerCount()) {
+            throw new IndexOutOfBoundsException("Towers must be referenced using indexes 0 to " + (state.getTowerCount() - 1) + ".");
         }
-        return -1;
     }
 
     /**
-     * Returns the singleton instance of the Repository.
+     * Returns the singleton instance of the Repository. The instance is created on first use,
+     * without taking a lock. Only the first call may come before {@link #init(int)}.
      *
      * @return The singleton instance.
      */
     public static Repository getInstance() {
-        if (_instance == null) {
-            _instance = new Repository();
-        } else if (!_instance.initialized) {
+        Repository instance = Holder.INSTANCE;
+        if (!instance.handedOut) {
+            instance.handedOut = true;
+        } else if (!instance.initialized) {
             throw new RuntimeException("Repository accessed before being initialized");
         }
-        return _instance;
+        return instance;
+    }
+
+    private static final class Holder {
+        static final Repository INSTANCE = new Repository();
     }
 
     /**
@@ -253,19 +430,43 @@ public class Repository {
         if (!initialized) {
             throw new IllegalStateException("Repository must be initialized");
         }
-        towers.clear();
+        setRecorder(null);
+        state = null;
+        goal = null;
         moves.clear();
+        validMoveCount = 0;
+        invalidMoveCount = 0;
         optimalMoves.clear();
+        scoredMoveCount = 0;
+        optimalMoveCount = 0;
         initialized = false; // Consider whether you want to de-initialize the repository here.
         changes.firePropertyChange("reset", null, null);
     }
 
     /**
-     * Gets the list of whether moves were optimal.
+     * Gets the flags of whether moves were optimal.
      *
-     * @return A list indicating whether each move was optimal.
+     * @return A bit set where bit i is set if the i-th move scored by the tutor was optimal.
      */
-    public ArrayList<Boolean> getOptimalMoves() {
+    public BitSet getOptimalMoves() {
         return optimalMoves;
     }
+
+    /**
+     * Gets the number of moves scored as optimal while the tutor was enabled.
+     *
+     * @return The number of optimal moves.
+     */
+    public int getOptimalMoveCount() {
+        return optimalMoveCount;
+    }
+
+    /**
+     * Gets the number of moves scored as not optimal while the tutor was enabled.
+     *
+     * @return The number of suboptimal moves.
+     */
+    public int getSuboptimalMoveCount() {
+        return scoredMoveCount - optimalMoveCount;
+    }
 }
@@ -0,0 +1,229 @@
+package com.mirohaap.towerofhanoitutor;
+
+import javafx.animation.AnimationTimer;
+import org.apache.commons.lang3.mutable.MutableBoolean;
+
+import java.io.IOException;
+
+/**
+ * Plays a recorded game back on the board, feeding each record to {@link Repository} and
+ * animating it on a {@link BoardView}. Like {@link AutoPlayUtil}, playback is driven by the
+ * JavaFX pulse: moves are played at the recorded pace scaled by a speed factor, and any moves
+ * that fall due while a move is still animating are applied together and animated as one step.
+ * <p>
+ * The playback can be moved to any record with {@link #seekTo(long)}, which uses the recording's
+ * checkpoint index and places the board directly, and keeps playing from there.
+ * </p>
+ */
+public class SessionPlayback {
+    private static final double MAX_ANIMATION_MILLIS = 300;
+    private static final double MIN_ANIMATION_MILLIS = 40;
+
+    private final BoardView board;
+    private final SessionReplayer replayer;
+    private final MutableBoolean reenable = new MutableBoolean(false);
+    private AnimationTimer timer;
+    private double speed;
+    private long startedAt; // Pulse time playback began or resumed, -1 until the next pulse
+    private double startOffsetMillis; // Recording time, from its start, that playback resumed at
+    private boolean pending; // Whether the replayer holds a record that is not yet due
+    private boolean ended; // Whether every record has been played; the timer is stopped until a seek
+    private boolean finished;
+    private final int[] ringTowers;
+
+    /**
+     * Constructs a playback of a recording on a board. The playback takes ownership of the
+     * replayer and closes it when playback is stopped.
+     *
+     * @param board    The board to play on, showing a new game with the recording's ring count.
+     * @param replayer The recording to play, positioned before its first record.
+     */
+    public SessionPlayback(BoardView board, SessionReplayer replayer) {
+        this.board = board;
+        this.replayer = replayer;
+        this.ringTowers = new int[replayer.getRingCount()];
+    }
+
+    /**
+     * Begins playing the recording. Must be called on the FX thread.
+     *
+     * @param speed How many times faster than recorded to play; {@link Double#POSITIVE_INFINITY}
+     *              applies the whole recording at once.
+     */
+    public void beginPlaying(double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Playback speed must be positive, got " + speed);
+        }
+        if (finished) {
+            throw new IllegalStateException("Playback has already finished");
+        }
+        this.speed = speed;
+        board.disableUserInput();
+        startedAt = -1;
+        startOffsetMillis = 0;
+        timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onPulse(now);
+            }
+        };
+        timer.start();
+    }
+
+    /**
+     * Stops playing for good and releases the recording. The board is left as it is, with user
+     * input disabled.
+     */
+    public void stopPlaying() {
+        finish();
+    }
+
+    /**
+     * Checks whether the recording is still being played.
+     *
+     * @return true until the recording has been played to the end or stopped.
+     */
+    public boolean isPlaying() {
+        return !finished && !ended;
+    }
+
+    /**
+     * Jumps to just after a record and plays on from there at the same speed. The board is
+     * placed directly, without animating, and the move history is cleared. Must not be called
+     * while a move is animating.
+     *
+     * @param recordIndex The number of records to show as played.
+     */
+    public void seekTo(long recordIndex) {
+        if (finished) {
+            throw new IllegalStateException("Playback has been stopped");
+        }
+        try {
+            replayer.seek(recordIndex);
+        } catch (IOException e) {
+            System.out.println("Error reading session recording.");
+            e.printStackTrace();
+            finish();
+            return;
+        }
+        replayer.getState().getTowers(ringTowers);
+        Repository.getInstance().loadState(ringTowers);
+        board.syncToRepository();
+        pending = false;
+        startedAt = -1;
+        startOffsetMillis = replayer.getTimeMillis() - replayer.getStartMillis();
+        if (ended) {
+            ended = false;
+            timer.start();
+        }
+    }
+
+    /**
+     * Returns how many records have been played.
+     *
+     * @return The playback position.
+     */
+    public long getPosition() {
+        return pending ? replayer.getRecordCount() - 1 : replayer.getRecordCount();
+    }
+
+    /**
+     * Returns the number of records in the recording.
+     *
+     * @return The playback length.
+     */
+    public long getLength() {
+        return replayer.getTotalRecords();
+    }
+
+    /**
+     * Applies every record that is due on this frame and animates the last one.
+     *
+     * @param now The pulse time in nanoseconds.
+     */
+    private void onPulse(long now) {
+        if (AnimationRepository.getInstance().animationsRunning()) {
+            return;
+        }
+        if (startedAt < 0) {
+            startedAt = now;
+        }
+        double elapsedMillis = startOffsetMillis + (now - startedAt) / 1e6 * speed;
+        Move last = null;
+        int applied = 0;
+        boolean jumped = false;
+        try {
+            while (!finished && (pending || replayer.next())) {
+                if (replayer.getTimeMillis() - replayer.getStartMillis() > elapsedMillis) {
+                    pending = true;
+                    break;
+                }
+                pending = false;
+                last = applyRecord();
+                jumped |= last == null;
+                applied++;
+            }
+            if (!pending && !finished) {
+                ended = true;
+                timer.stop();
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading session recording.");
+            e.printStackTrace();
+            finish();
+        }
+
+        double duration = Double.isInfinite(speed) ? MIN_ANIMATION_MILLIS : Math.max(MIN_ANIMATION_MILLIS, MAX_ANIMATION_MILLIS / Math.max(1, speed));
+        if (applied > 1 || jumped) {
+            board.animateToRepository(duration, reenable); // Every ring moved this frame slides at once.
+        } else if (last != null && last.isValid()) {
+            board.animateMove(last, duration, reenable);
+        } else if (last != null) {
+            SoundPlayer.getInstance().playWrong();
+        }
+    }
+
+    /**
+     * Applies the replayer's current record to the repository.
+     *
+     * @return The move to animate: the move itself, the reverse of an undone move, or null for a jump.
+     */
+    private Move applyRecord() {
+        if (replayer.isJump()) {
+            replayer.getState().getTowers(ringTowers);
+            Repository.getInstance().loadState(ringTowers);
+            return null;
+        }
+        if (replayer.isUndo()) {
+            if (Repository.getInstance().getValidMoveCount() == 0) {
+                // The undone move was made before the last seek, so it is no longer in the history.
+                Move reverse = new Move(replayer.getRing(), replayer.getTo(), replayer.getFrom(), true);
+                Repository.getInstance().applyMove(reverse);
+                return reverse;
+            }
+            return Repository.getInstance().popLastValidMove().reversed();
+        }
+        Move move = replayer.toMove();
+        Repository.getInstance().applyMove(move);
+        return move;
+    }
+
+    /**
+     * Stops the timer and releases the recording.
+     */
+    private void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (timer != null) {
+            timer.stop();
+        }
+        try {
+            replayer.close();
+        } catch (IOException e) {
+            System.out.println("Error closing session recording.");
+            e.printStackTrace();
+        }
+    }
+}
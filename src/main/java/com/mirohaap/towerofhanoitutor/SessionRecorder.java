@@ -0,0 +1,302 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the moves of a game to a compact binary file so it can be replayed later with a
+ * {@link SessionReplayer}. The file holds a fixed header followed by one variable-length record
+ * per move, usually two or three bytes:
+ * <ul>
+ *     <li>one byte with the ring in the low six bits, the valid flag in bit 6 and the optimal flag in bit 7;</li>
+ *     <li>a little-endian base-128 varint holding the milliseconds since the previous record shifted
+ *     left by four, with the source tower minus one in bits 2-3 and the destination tower minus one in bits 0-1.</li>
+ * </ul>
+ * An undone move is recorded as the move being undone with the optimal flag set and the valid flag
+ * clear, a combination no played move can have. When the board is placed directly, as after a
+ * timeline seek or a turbo autoplay step, a jump record is written instead: a zero byte, the time
+ * varint with both tower fields zero, and the new mask of each tower as a big-endian long.
+ * <p>
+ * Records are collected in a buffer and written when it fills, at every checkpoint, on {@link #flush()}
+ * and on {@link #close()}, so recording a move is normally just a few buffer writes. If the application
+ * crashes, the records since the last checkpoint, fewer than {@link #CHECKPOINT_INTERVAL}, are lost,
+ * and every checkpoint in the index points at records that reached the file. Files are only forced
+ * to disk on close, so an operating system crash can lose more. A torn final record is ignored by
+ * the replayer. A recorder can also be attached to a
+ * {@link HanoiEngine} as a listener.
+ * </p>
+ * <p>
+ * Every {@link #CHECKPOINT_INTERVAL} records, a checkpoint is appended to a sidecar index file
+ * ({@code <recording>.idx}): the record count, the file offset of the next record, the time, and the
+ * three tower masks. Checkpoint {@code i} describes the game after {@code (i + 1) * CHECKPOINT_INTERVAL}
+ * records, so a replayer finds the checkpoint before any record directly and replays at most
+ * {@code CHECKPOINT_INTERVAL - 1} records from it. The index header gets the total record count on
+ * {@link #close()}.
+ * </p>
+ */
+public class SessionRecorder implements Closeable, EngineListener {
+    public static final Path DEFAULT_DIRECTORY = Path.of("recordings");
+    public static final String EXTENSION = ".hanoirec";
+    static final int MAGIC = 0x484E5243; // "HNRC"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 20;
+    static final int MAX_RECORD_SIZE = 11 + 8 * TowerState.TOWER_COUNT; // Flag byte, a varint of up to 64 bits and a jump's masks
+    static final int JUMP_MARKER = 0; // A ring of zero, which no move can have
+    static final int RING_MASK = 0x3F, VALID_FLAG = 0x40, OPTIMAL_FLAG = 0x80;
+    public static final int CHECKPOINT_INTERVAL = 1024;
+    static final int INDEX_MAGIC = 0x484E4349; // "HNCI"
+    static final int INDEX_HEADER_SIZE = 24; // Magic, version, interval, ring count, total record count
+    static final int INDEX_ENTRY_SIZE = 24 + 8 * TowerState.TOWER_COUNT;
+    static final int INDEX_RECORD_COUNT_OFFSET = 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel, indexChannel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE);
+    private final TowerState state; // The board after every record so far, for checkpoints
+    private final int ringCount;
+    private long lastMillis;
+    private long recordCount;
+    private long writtenBytes; // Bytes of the recording already written to the file
+
+    /**
+     * Starts a new recording in a directory, named after its start time.
+     *
+     * @param directory The directory to record into, created if needed.
+     * @param ringCount The number of rings in the recorded game.
+     * @return The new recorder.
+     * @throws IOException If the recording file cannot be created.
+     */
+    public static SessionRecorder create(Path directory, int ringCount) throws IOException {
+        Files.createDirectories(directory);
+        long startMillis = System.currentTimeMillis();
+        return new SessionRecorder(directory.resolve("session-" + startMillis + EXTENSION), ringCount, startMillis);
+    }
+
+    /**
+     * Creates a recording file and its index, replacing any files already there, and writes their headers.
+     *
+     * @param path        The file to record to.
+     * @param ringCount   The number of rings in the recorded game.
+     * @param startMillis When the game started, in epoch milliseconds. Record times are relative to this.
+     * @throws IOException If the file cannot be created.
+     */
+    public SessionRecorder(Path path, int ringCount, long startMillis) throws IOException {
+        if (ringCount < 1 || ringCount > OptimalSolution.MAX_RINGS) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + OptimalSolution.MAX_RINGS + ", got " + ringCount);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            this.indexChannel = FileChannel.open(indexPathOf(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        this.ringCount = ringCount;
+        this.state = new TowerState(ringCount);
+        this.lastMillis = startMillis;
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(MAGIC).putInt(VERSION).putInt(ringCount).putLong(startMillis);
+        ByteBuffer indexHeader = ByteBuffer.allocate(INDEX_HEADER_SIZE)
+                .putInt(INDEX_MAGIC).putInt(VERSION).putInt(CHECKPOINT_INTERVAL).putInt(ringCount).putLong(-1).flip();
+        indexChannel.write(indexHeader);
+    }
+
+    /**
+     * Returns the path of the checkpoint index that belongs to a recording.
+     *
+     * @param recording The recording file.
+     * @return The index file next to it.
+     */
+    public static Path indexPathOf(Path recording) {
+        return recording.resolveSibling(recording.getFileName() + ".idx");
+    }
+
+    /**
+     * Records a move made now.
+     *
+     * @param move    The move, valid if it was applied.
+     * @param optimal Whether the move was the next move of the optimal solution.
+     * @throws IOException If the buffered records or a checkpoint could not be written.
+     */
+    public void record(Move move, boolean optimal) throws IOException {
+        record(move.getN(), move.getFrom(), move.getTo(), move.isValid(), optimal, System.currentTimeMillis());
+    }
+
+    /**
+     * Records that a move was taken back now.
+     *
+     * @param move The move that was undone, as it was originally made.
+     * @throws IOException If the buffer was full and could not be written.
+     */
+    public void recordUndo(Move move) throws IOException {
+        write(move.getN(), move.getFrom(), move.getTo(), OPTIMAL_FLAG, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a move given as primitives. This path allocates nothing.
+     *
+     * @param ring       The ring that was moved.
+     * @param from       The tower it was taken from, numbered from 1.
+     * @param to         The tower it was placed on, numbered from 1.
+     * @param valid      Whether the move was applied.
+     * @param optimal    Whether the move was the next move of the optimal solution. Ignored for invalid moves.
+     * @param timeMillis When the move was made, in epoch milliseconds.
+     * @throws IOException If the buffered records or a checkpoint could not be written.
+     */
+    public void record(int ring, int from, int to, boolean valid, boolean optimal, long timeMillis) throws IOException {
+        write(ring, from, to, valid ? (optimal ? VALID_FLAG | OPTIMAL_FLAG : VALID_FLAG) : 0, timeMillis);
+    }
+
+    /**
+     * Records that the board was placed directly in a configuration now, without the moves that lead there.
+     *
+     * @param target The new configuration, with the recording's ring count and three towers.
+     * @throws IOException If the buffered records or a checkpoint could not be written.
+     */
+    public void recordJump(TowerState target) throws IOException {
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            flush();
+        }
+        state.copyFrom(target);
+        putTime(JUMP_MARKER, 0, System.currentTimeMillis());
+        for (int tower = 0; tower < TowerState.TOWER_COUNT; tower++) {
+            buffer.putLong(target.getMask(tower));
+        }
+        endRecord();
+    }
+
+    private void write(int ring, int from, int to, int flags, long timeMillis) throws IOException {
+        if (ring < 1 || ring > ringCount || from < 1 || from > TowerState.TOWER_COUNT || to < 1 || to > TowerState.TOWER_COUNT) {
+            throw new IllegalArgumentException("Cannot record move of ring " + ring + " from " + from + " to " + to);
+        }
+        // Applied moves and undos must follow the rules, or the checkpoints would describe a board that never existed.
+        int source = flags == OPTIMAL_FLAG ? to - 1 : from - 1, destination = flags == OPTIMAL_FLAG ? from - 1 : to - 1;
+        boolean applied = (flags & VALID_FLAG) != 0 || flags == OPTIMAL_FLAG;
+        if (applied && (state.getTop(source) != ring || !state.canMove(source, destination))) {
+            throw new IllegalArgumentException("Ring " + ring + " cannot move from tower " + (source + 1) + " to tower " + (destination + 1));
+        }
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            flush();
+        }
+        putTime(ring | flags, (from - 1) << 2 | (to - 1), timeMillis);
+        if (applied) {
+            state.moveTop(source, destination);
+        }
+        endRecord();
+    }
+
+    /**
+     * Puts the first byte of a record and its time varint into the buffer.
+     *
+     * @param first      The ring and flags byte.
+     * @param towers     The tower fields, in the low four bits.
+     * @param timeMillis When the record was made, in epoch milliseconds.
+     */
+    private void putTime(int first, int towers, long timeMillis) {
+        long delta = Math.max(0, timeMillis - lastMillis); // Clamped in case the clock steps backwards.
+        lastMillis = Math.max(lastMillis, timeMillis);
+        buffer.put((byte) first);
+        long packed = delta << 4 | towers;
+        while ((packed & ~0x7FL) != 0) {
+            buffer.put((byte) ((packed & 0x7F) | 0x80));
+            packed >>>= 7;
+        }
+        buffer.put((byte) packed);
+    }
+
+    /**
+     * Counts the record just buffered, and writes a checkpoint if one is due.
+     *
+     * @throws IOException If the buffered records or the checkpoint could not be written.
+     */
+    private void endRecord() throws IOException {
+        recordCount++;
+        if (recordCount % CHECKPOINT_INTERVAL == 0) {
+            flush(); // Written first, so the checkpoint never points past the end of the file.
+            writeCheckpoint();
+        }
+    }
+
+    /**
+     * Appends a checkpoint of the game after the latest record to the index.
+     *
+     * @throws IOException If the index cannot be written.
+     */
+    private void writeCheckpoint() throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(recordCount).putLong(writtenBytes + buffer.position()).putLong(lastMillis);
+        for (int tower = 0; tower < TowerState.TOWER_COUNT; tower++) {
+            indexEntry.putLong(state.getMask(tower));
+        }
+        indexEntry.flip();
+        while (indexEntry.hasRemaining()) {
+            indexChannel.write(indexEntry);
+        }
+    }
+
+    @Override
+    public void moveApplied(int ring, int from, int to, boolean optimal) {
+        recordUnchecked(ring, from, to, true, optimal);
+    }
+
+    @Override
+    public void moveRejected(int ring, int from, int to) {
+        recordUnchecked(ring, from, to, false, false);
+    }
+
+    private void recordUnchecked(int ring, int from, int to, boolean valid, boolean optimal) {
+        try {
+            record(ring, from, to, valid, optimal, System.currentTimeMillis());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes every buffered record to the file, without forcing it to disk.
+     *
+     * @throws IOException If the records cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            writtenBytes += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining records, stores the total record count in the index, and closes both files.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel.isOpen()) {
+            try {
+                flush();
+                channel.force(false);
+                indexChannel.write(ByteBuffer.allocate(8).putLong(recordCount).flip(), INDEX_RECORD_COUNT_OFFSET);
+                indexChannel.force(false);
+            } finally {
+                channel.close();
+                indexChannel.close();
+            }
+        }
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the {@link GameSession}s running in this JVM. Sessions are created, looked up
+ * and closed concurrently without any registry-wide lock.
+ */
+public class SessionRegistry {
+    private final ConcurrentMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Creates and registers a new session.
+     *
+     * @param ringCount The number of rings in the new game.
+     * @return The new session.
+     */
+    public GameSession create(int ringCount) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), ringCount);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * Looks up a session by id.
+     *
+     * @param id The id of the session.
+     * @return The session, or null if it does not exist or was closed.
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Removes a session from the registry.
+     *
+     * @param id The id of the session to close.
+     * @return The removed session, or null if it was not registered.
+     */
+    public GameSession close(long id) {
+        return sessions.remove(id);
+    }
+
+    /**
+     * Returns the number of open sessions.
+     *
+     * @return The session count.
+     */
+    public int size() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,388 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.Stream;
+
+/**
+ * Reads a recording written by {@link SessionRecorder}, one record at a time. The file is read
+ * through a memory-mapped window that slides forward as records are consumed, so recordings
+ * of any size are streamed without being loaded into the heap, and reading a record allocates
+ * nothing. The fields of the current record are read through the getters after each
+ * {@link #next()}, and the board they lead to through {@link #getState()}. A jump record, where the
+ * board was placed directly, has a ring of zero and only changes the state.
+ * <p>
+ * When the recording has a checkpoint index, {@link #seek(long)} restores the checkpoint before
+ * the target and replays at most {@link SessionRecorder#CHECKPOINT_INTERVAL} records from there, so
+ * seeking takes the same time anywhere in a recording. Without an index, seeking replays from the
+ * start.
+ * </p>
+ * <p>
+ * A replayer is not thread-safe.
+ * </p>
+ */
+public class SessionReplayer implements Closeable {
+    private static final long WINDOW_SIZE = 1L << 26; // 64 MiB of the file is mapped at a time
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int ringCount;
+    private final long startMillis;
+    private final TowerState state;
+    private final long[] checkpointMasks = new long[TowerState.TOWER_COUNT];
+    private MappedByteBuffer index; // Checkpoint entries, or null if the recording has no usable index
+    private int checkpointInterval;
+    private long checkpointCount;
+    private long totalRecords;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int ring, from, to, flags;
+    private long timeMillis;
+    private long recordCount;
+
+    /**
+     * Opens a recording and reads its header.
+     *
+     * @param path The recording file.
+     * @throws IOException If the file is not a recording or cannot be read.
+     */
+    public SessionReplayer(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        if (fileSize < SessionRecorder.HEADER_SIZE) {
+            channel.close();
+            throw new IOException("Not a session recording: " + path);
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SessionRecorder.HEADER_SIZE);
+        int version;
+        if (header.getInt() != SessionRecorder.MAGIC || (version = header.getInt()) < 1 || version > SessionRecorder.VERSION) {
+            channel.close();
+            throw new IOException("Not a session recording of version " + SessionRecorder.VERSION + " or earlier: " + path);
+        }
+        this.ringCount = header.getInt();
+        this.startMillis = header.getLong();
+        if (ringCount < 1 || ringCount > OptimalSolution.MAX_RINGS) {
+            channel.close();
+            throw new IOException("Recording has an invalid ring count of " + ringCount + ": " + path);
+        }
+        this.state = new TowerState(ringCount);
+        openIndex(SessionRecorder.indexPathOf(path));
+        rewind();
+        if (totalRecords < 0) {
+            // The recorder did not close cleanly, so count the records after the last checkpoint.
+            seek(checkpointCount * checkpointInterval);
+            while (next()) {
+            }
+            totalRecords = recordCount;
+            rewind();
+        }
+    }
+
+    /**
+     * Maps the checkpoint index of the recording, if it has one that matches. Checkpoints that
+     * point past the end of the recording, left by a crash before the records were written, are ignored.
+     *
+     * @param indexPath The index file.
+     * @throws IOException If the index exists but cannot be read.
+     */
+    private void openIndex(Path indexPath) throws IOException {
+        totalRecords = -1;
+        checkpointCount = 0;
+        checkpointInterval = SessionRecorder.CHECKPOINT_INTERVAL;
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = indexChannel.size();
+            if (size < SessionRecorder.INDEX_HEADER_SIZE) {
+                return;
+            }
+            MappedByteBuffer mapped = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (mapped.getInt(0) != SessionRecorder.INDEX_MAGIC || mapped.getInt(4) < 1 || mapped.getInt(4) > SessionRecorder.VERSION
+                    || mapped.getInt(12) != ringCount || mapped.getInt(8) < 1) {
+                return;
+            }
+            checkpointInterval = mapped.getInt(8);
+            long entries = (size - SessionRecorder.INDEX_HEADER_SIZE) / SessionRecorder.INDEX_ENTRY_SIZE;
+            while (entries > 0 && checkpointOffset(mapped, entries - 1) > fileSize) {
+                entries--;
+            }
+            index = mapped;
+            checkpointCount = entries;
+            totalRecords = mapped.getLong(SessionRecorder.INDEX_RECORD_COUNT_OFFSET);
+        }
+    }
+
+    private static long checkpointOffset(MappedByteBuffer index, long checkpoint) {
+        return index.getLong((int) (SessionRecorder.INDEX_HEADER_SIZE + checkpoint * SessionRecorder.INDEX_ENTRY_SIZE + 8));
+    }
+
+    /**
+     * Finds the most recently started recording in a directory.
+     *
+     * @param directory The directory to search.
+     * @return The newest recording, or null if there is none.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static Path findLatest(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return null;
+        }
+        Path latest = null;
+        long latestStart = Long.MIN_VALUE;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith("session-") || !name.endsWith(SessionRecorder.EXTENSION)) {
+                    continue;
+                }
+                try {
+                    long start = Long.parseLong(name.substring("session-".length(), name.length() - SessionRecorder.EXTENSION.length()));
+                    if (start > latestStart) {
+                        latestStart = start;
+                        latest = file;
+                    }
+                } catch (NumberFormatException e) {
+                    // Not one of ours.
+                }
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Goes back to before the first record.
+     *
+     * @throws IOException If the file cannot be mapped.
+     */
+    public void rewind() throws IOException {
+        mapFrom(SessionRecorder.HEADER_SIZE);
+        timeMillis = startMillis;
+        recordCount = 0;
+        state.reset();
+    }
+
+    /**
+     * Moves to just after a given number of records, so the next call to {@link #next()} reads
+     * record {@code recordIndex}. A short step forward just reads ahead; anything else restores
+     * the nearest earlier checkpoint and reads on from there.
+     *
+     * @param recordIndex The number of records to have read, clamped to the recording.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public void seek(long recordIndex) throws IOException {
+        long target = Math.max(0, totalRecords < 0 ? recordIndex : Math.min(recordIndex, totalRecords));
+        if (target < recordCount || target - recordCount >= checkpointInterval) {
+            long checkpoint = Math.min(target / checkpointInterval, checkpointCount);
+            if (checkpoint == 0) {
+                rewind();
+            } else {
+                restoreCheckpoint(checkpoint - 1);
+            }
+        }
+        while (recordCount < target && next()) {
+        }
+    }
+
+    /**
+     * Positions the replayer just after the records covered by a checkpoint.
+     *
+     * @param checkpoint The index of the checkpoint.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void restoreCheckpoint(long checkpoint) throws IOException {
+        int entry = (int) (SessionRecorder.INDEX_HEADER_SIZE + checkpoint * SessionRecorder.INDEX_ENTRY_SIZE);
+        for (int tower = 0; tower < TowerState.TOWER_COUNT; tower++) {
+            checkpointMasks[tower] = index.getLong(entry + 24 + 8 * tower);
+        }
+        state.loadMasks(checkpointMasks);
+        recordCount = index.getLong(entry);
+        mapFrom(index.getLong(entry + 8));
+        timeMillis = index.getLong(entry + 16);
+    }
+
+    /**
+     * Advances to the next record.
+     *
+     * @return true if there was another complete record, false at the end of the recording.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public boolean next() throws IOException {
+        if (window.remaining() < SessionRecorder.MAX_RECORD_SIZE && windowStart + window.limit() < fileSize) {
+            mapFrom(windowStart + window.position());
+        }
+        if (!window.hasRemaining()) {
+            return false;
+        }
+        int start = window.position();
+        int first = window.get() & 0xFF;
+        long packed = 0;
+        int shift = 0;
+        while (true) {
+            if (!window.hasRemaining() || shift > 63) {
+                window.position(start); // A torn final record, left by a crash while recording.
+                return false;
+            }
+            int b = window.get() & 0xFF;
+            packed |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+        }
+        if (first == SessionRecorder.JUMP_MARKER) {
+            if (window.remaining() < 8 * TowerState.TOWER_COUNT) {
+                window.position(start);
+                return false;
+            }
+            for (int tower = 0; tower < TowerState.TOWER_COUNT; tower++) {
+                checkpointMasks[tower] = window.getLong();
+            }
+            try {
+                state.loadMasks(checkpointMasks);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt jump record at offset " + (windowStart + start), e);
+            }
+        }
+        ring = first & SessionRecorder.RING_MASK;
+        flags = first & ~SessionRecorder.RING_MASK;
+        from = (int) (packed >>> 2 & 3) + 1;
+        to = (int) (packed & 3) + 1;
+        timeMillis += packed >>> 4;
+        recordCount++;
+        if (isUndo()) {
+            state.moveTop(to - 1, from - 1);
+        } else if (isValid()) {
+            state.moveTop(from - 1, to - 1);
+        }
+        return true;
+    }
+
+    /**
+     * Maps the window of the file that starts at an offset.
+     *
+     * @param offset The file offset the window starts at.
+     * @throws IOException If the file cannot be mapped.
+     */
+    private void mapFrom(long offset) throws IOException {
+        windowStart = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(WINDOW_SIZE, fileSize - offset));
+    }
+
+    /**
+     * Replays every remaining record into an engine as fast as possible. Undone moves are
+     * submitted as the reverse move and jumps are loaded directly, which leaves the engine in the
+     * recorded state.
+     *
+     * @param engine The engine to replay into, normally fresh and with the recording's ring count.
+     * @return The number of records replayed.
+     * @throws IOException If the file cannot be mapped.
+     */
+    public long replayInto(HanoiEngine engine) throws IOException {
+        long replayed = 0;
+        while (next()) {
+            if (isJump()) {
+                engine.load(state);
+            } else if (isUndo()) {
+                engine.submit(ring, to, from);
+            } else {
+                engine.submit(ring, from, to);
+            }
+            replayed++;
+        }
+        return replayed;
+    }
+
+    /**
+     * Returns the current record as a move. Undone moves are returned as originally made.
+     *
+     * @return A new move for the current record.
+     */
+    public Move toMove() {
+        return new Move(ring, from, to, isValid());
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        index = null;
+        channel.close();
+    }
+
+    /**
+     * Returns the board after the records read so far. Callers must treat it as read-only.
+     *
+     * @return The replayed tower state.
+     */
+    public TowerState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the number of complete records in the recording.
+     *
+     * @return The record count.
+     */
+    public long getTotalRecords() {
+        return totalRecords;
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public int getRing() {
+        return ring;
+    }
+
+    public int getFrom() {
+        return from;
+    }
+
+    public int getTo() {
+        return to;
+    }
+
+    public boolean isValid() {
+        return (flags & SessionRecorder.VALID_FLAG) != 0;
+    }
+
+    public boolean isOptimal() {
+        return flags == (SessionRecorder.VALID_FLAG | SessionRecorder.OPTIMAL_FLAG);
+    }
+
+    public boolean isUndo() {
+        return flags == SessionRecorder.OPTIMAL_FLAG;
+    }
+
+    public boolean isJump() {
+        return ring == SessionRecorder.JUMP_MARKER;
+    }
+
+    /**
+     * Returns when the current record was made, in epoch milliseconds.
+     *
+     * @return The record's time.
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * Returns how many records have been read since the start of the recording.
+     *
+     * @return The number of records read.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+}
@@ -3,10 +3,12 @@ package com.mirohaap.towerofhanoitutor;
 /**
  * Defines a snapping range around a point (original X and Y coordinates) to determine
  * if an object is close enough to be considered "within range" for snapping purposes.
- * It also keeps track of a tower and an optional owner ring.
+ * It also keeps track of a tower and an optional owner ring. A snap range can be moved to
+ * follow the top of its tower, so one instance per tower serves for the whole game.
  */
 public class SnapRange {
-    private final double ogX, ogY; // Original X and Y coordinates.
+    private double ogX, ogY; // Original X and Y coordinates.
+    private double range; // Distance from the original point that is within range.
     private double maxX, maxY, minX, minY; // Max and min X and Y for the snap range.
     private static final int DEFAULT_SNAP_RANGE = 100; // Default snap range value.
     private Ring owner; // The ring that owns this snap range, if any.
@@ -52,12 +54,27 @@ public class SnapRange {
         return x < maxX && x > minX && y < maxY && y > minY;
     }
 
+    /**
+     * Moves the snap range to a new point and owner, keeping its range and tower.
+     *
+     * @param x     The new X-coordinate.
+     * @param y     The new Y-coordinate.
+     * @param owner The ring that now owns this snap range, or null if it is the bottom of an empty tower.
+     */
+    public void moveTo(double x, double y, Ring owner) {
+        this.ogX = x;
+        this.ogY = y;
+        this.owner = owner;
+        setRange(range);
+    }
+
     /**
      * Sets the boundaries of the snap range based on the original coordinates and the provided range.
      *
      * @param range The distance from the original point that defines the snap range.
      */
     public void setRange(double range) {
+        this.range = range;
         maxX = ogX + range;
         maxY = ogY + range;
         minX = ogX - range;
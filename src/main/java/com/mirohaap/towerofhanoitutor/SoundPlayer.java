@@ -1,84 +1,231 @@
 package com.mirohaap.towerofhanoitutor;
 
 import javax.sound.sampled.*;
-import java.io.File;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Singleton class for playing sound effects in the Tower of Hanoi tutor application.
  * This class manages a collection of "place" sounds and a single "wrong" sound,
  * allowing for audio feedback during game play.
+ * <p>
+ * The sounds are decoded once from the classpath into PCM samples. A dedicated mixer thread
+ * plays them through a fixed pool of voices, so overlapping sounds are mixed instead of cutting
+ * each other off. Playing a sound only sets a flag for the mixer, so it never blocks or
+ * allocates. Triggers of the same sound that arrive faster than {@link #MIN_RETRIGGER_FRAMES}
+ * apart, as they do during fast autoplay, are merged into one.
+ * </p>
  */
 public class SoundPlayer {
-    private static SoundPlayer instance;
-    private Clip[] placeClips; // Clips for place sounds.
-    private Clip wrongClip; // Clip for wrong action sound.
-    private int currentPlaceIndex; // Index for the next place clip to play.
+    private static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false); // Format all sounds are mixed in
+    private static final int CHANNELS = 2;
+    private static final int PLACE_SOUND_COUNT = 4;
+    private static final int WRONG_SOUND = PLACE_SOUND_COUNT; // Index of the wrong sound, after the place sounds
+    private static final int VOICE_COUNT = 8; // Number of sounds that can play at once
+    private static final int CHUNK_FRAMES = 256; // Frames mixed per write, about 6 ms
+    private static final int MIN_RETRIGGER_FRAMES = 1323; // 30 ms; the same sound is not restarted sooner than this
+
+    private final short[][] sounds; // Interleaved samples of every sound
+    private final AtomicIntegerArray pending; // Set to 1 for a sound that was triggered since the last chunk
+    private final long[] lastStartFrame; // Mixer frame at which each sound was last started
+    private final int[] voiceSound = new int[VOICE_COUNT]; // Sound played by each voice, or -1 if the voice is free
+    private final int[] voicePosition = new int[VOICE_COUNT]; // Next sample of each voice
+    private final int[] mixBuffer = new int[CHUNK_FRAMES * CHANNELS];
+    private final byte[] outputBuffer = new byte[CHUNK_FRAMES * CHANNELS * 2];
+    private long mixedFrames; // Frames written by the mixer so far
+    private int currentPlaceIndex; // Index for the next place sound to play.
+    private Thread mixer; // Null if no audio line is available
 
     /**
      * Private constructor to prevent instantiation outside of getInstance method.
-     * Loads the sound files into memory for quick access.
+     * Decodes the sound files into memory and starts the mixer thread.
      */
     private SoundPlayer() {
-        // Load place sound files
-        placeClips = new Clip[4];
-        for (int i = 0; i < placeClips.length; i++) {
-            try {
-                AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File("place" + (i + 1) + ".wav"));
-                placeClips[i] = AudioSystem.getClip();
-                placeClips[i].open(audioInputStream);
-            } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
-                e.printStackTrace();
-            }
+        sounds = new short[PLACE_SOUND_COUNT + 1][];
+        for (int i = 0; i < PLACE_SOUND_COUNT; i++) {
+            sounds[i] = decode("place" + (i + 1) + ".wav");
         }
+        sounds[WRONG_SOUND] = decode("wrong.wav");
+        pending = new AtomicIntegerArray(sounds.length);
+        lastStartFrame = new long[sounds.length];
+        Arrays.fill(lastStartFrame, -MIN_RETRIGGER_FRAMES);
+        Arrays.fill(voiceSound, -1);
+        currentPlaceIndex = 0;
 
-        // Load wrong sound file
         try {
-            AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File("wrong.wav"));
-            wrongClip = AudioSystem.getClip();
-            wrongClip.open(audioInputStream);
-        } catch (UnsupportedAudioFileException | IOException | LineUnavailableException e) {
+            SourceDataLine line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, outputBuffer.length * 4);
+            line.start();
+            mixer = new Thread(() -> mixLoop(line), "sound-mixer");
+            mixer.setDaemon(true);
+            mixer.setPriority(Thread.MAX_PRIORITY);
+            mixer.start();
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.out.println("Error opening an audio line, sound effects are disabled.");
             e.printStackTrace();
         }
-
-        currentPlaceIndex = 0;
     }
 
     /**
-     * Gets the singleton instance of the SoundPlayer.
+     * Gets the singleton instance of the SoundPlayer. The sounds are loaded on first use, without
+     * taking a lock.
      *
      * @return The singleton instance of SoundPlayer.
      */
     public static SoundPlayer getInstance() {
-        if (instance == null) {
-            instance = new SoundPlayer();
-        }
-        return instance;
+        return Holder.INSTANCE;
+    }
+
+    private static final class Holder {
+        static final SoundPlayer INSTANCE = new SoundPlayer();
     }
 
     /**
      * Plays one of the "place" sounds. Cycles through a set of sounds to provide variety.
      */
     public void playPlace() {
-        Clip clip = placeClips[currentPlaceIndex];
-        if (clip.isRunning()) {
-            clip.stop();
-        }
-        clip.setFramePosition(0); // Rewind to the beginning of the clip.
-        clip.start(); // Play the sound.
-        currentPlaceIndex = (currentPlaceIndex + 1) % placeClips.length; // Move to the next clip for the next call.
+        trigger(currentPlaceIndex);
+        currentPlaceIndex = (currentPlaceIndex + 1) % PLACE_SOUND_COUNT; // Move to the next sound for the next call.
     }
 
     /**
      * Plays the "wrong" action sound.
      */
     public void playWrong() {
-        if (wrongClip.isRunning()) {
-            wrongClip.stop();
+        trigger(WRONG_SOUND);
+    }
+
+    /**
+     * Asks the mixer to start a sound with its next chunk.
+     *
+     * @param sound The index of the sound.
+     */
+    private void trigger(int sound) {
+        if (mixer == null) {
+            return;
+        }
+        pending.set(sound, 1);
+        LockSupport.unpark(mixer);
+    }
+
+    /**
+     * Body of the mixer thread: mixes the active voices chunk by chunk into the line, and sleeps
+     * while nothing is playing.
+     *
+     * @param line The open audio line.
+     */
+    private void mixLoop(SourceDataLine line) {
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!startPendingVoices() && !hasActiveVoice()) {
+                LockSupport.park(this);
+                continue;
+            }
+            mixChunk();
+            line.write(outputBuffer, 0, outputBuffer.length); // Blocks while the line is full, pacing the mixer.
+            mixedFrames += CHUNK_FRAMES;
+        }
+        line.close();
+    }
+
+    /**
+     * Starts a voice for every sound triggered since the last chunk. A sound started less than
+     * {@link #MIN_RETRIGGER_FRAMES} ago is not started again. When every voice is busy, the voice
+     * that has played the longest is reused.
+     *
+     * @return true if a voice was started.
+     */
+    private boolean startPendingVoices() {
+        boolean started = false;
+        for (int sound = 0; sound < sounds.length; sound++) {
+            if (pending.get(sound) == 0 || pending.getAndSet(sound, 0) == 0) {
+                continue;
+            }
+            if (mixedFrames - lastStartFrame[sound] < MIN_RETRIGGER_FRAMES || sounds[sound].length == 0) {
+                continue;
+            }
+            int voice = 0;
+            for (int i = 0; i < VOICE_COUNT; i++) {
+                if (voiceSound[i] == -1) {
+                    voice = i;
+                    break;
+                }
+                if (voicePosition[i] > voicePosition[voice]) {
+                    voice = i;
+                }
+            }
+            voiceSound[voice] = sound;
+            voicePosition[voice] = 0;
+            lastStartFrame[sound] = mixedFrames;
+            started = true;
         }
-        wrongClip.setFramePosition(0); // Rewind to the beginning of the clip.
-        wrongClip.start(); // Play the sound.
+        return started;
     }
 
-    // Additional methods can be added here for playing other sound effects as needed.
+    private boolean hasActiveVoice() {
+        for (int sound : voiceSound) {
+            if (sound != -1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sums one chunk of every active voice into the output buffer, clipping to 16 bits.
+     */
+    private void mixChunk() {
+        Arrays.fill(mixBuffer, 0);
+        for (int voice = 0; voice < VOICE_COUNT; voice++) {
+            int sound = voiceSound[voice];
+            if (sound == -1) {
+                continue;
+            }
+            short[] samples = sounds[sound];
+            int position = voicePosition[voice];
+            int count = Math.min(mixBuffer.length, samples.length - position);
+            for (int i = 0; i < count; i++) {
+                mixBuffer[i] += samples[position + i];
+            }
+            position += count;
+            voicePosition[voice] = position;
+            if (position >= samples.length) {
+                voiceSound[voice] = -1;
+            }
+        }
+        for (int i = 0; i < mixBuffer.length; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+            outputBuffer[2 * i] = (byte) sample;
+            outputBuffer[2 * i + 1] = (byte) (sample >> 8);
+        }
+    }
+
+    /**
+     * Decodes a sound resource into interleaved samples in the mixer's format.
+     *
+     * @param name The resource name, relative to this class.
+     * @return The samples, or an empty array if the sound could not be loaded.
+     */
+    private static short[] decode(String name) {
+        try (InputStream resource = SoundPlayer.class.getResourceAsStream(name)) {
+            if (resource == null) {
+                throw new IOException("Missing sound resource " + name);
+            }
+            AudioInputStream source = AudioSystem.getAudioInputStream(new BufferedInputStream(resource));
+            AudioInputStream pcm = source.getFormat().matches(FORMAT) ? source : AudioSystem.getAudioInputStream(FORMAT, source);
+            byte[] bytes = pcm.readAllBytes();
+            short[] samples = new short[bytes.length / 2];
+            ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(samples);
+            return samples;
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            System.out.println("Error loading sound " + name + ".");
+            e.printStackTrace();
+            return new short[0];
+        }
+    }
 }
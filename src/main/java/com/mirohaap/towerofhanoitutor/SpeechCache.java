@@ -0,0 +1,232 @@
+package com.mirohaap.towerofhanoitutor;
+
+import com.sun.speech.freetts.Voice;
+import com.sun.speech.freetts.audio.AudioPlayer;
+import com.sun.speech.freetts.audio.SingleFileAudioPlayer;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache of pre-rendered speech for the tutor's phrases. Each phrase is synthesized once and
+ * stored on disk as a PCM WAV file, and from then on played back directly instead of being
+ * synthesized again. Only the {@link #MAX_RESIDENT_PHRASES} most recently played phrases are kept
+ * decoded in memory; the others are read from disk when they are played.
+ * <p>
+ * Rendering and playback block the calling thread, so both are meant to run on the tutor's
+ * speech thread. Only the set of cached phrases may be queried from other threads.
+ * </p>
+ */
+public class SpeechCache implements Closeable {
+    public static final Path DEFAULT_DIRECTORY = Path.of("speech-cache");
+    private static final String EXTENSION = ".wav";
+    private static final String TEMP_SUFFIX = ".tmp"; // Added to the key while a phrase is being rendered
+    public static final int MAX_RESIDENT_PHRASES = 64;
+
+    private final Path directory;
+    private final Set<String> rendered = ConcurrentHashMap.newKeySet(); // Keys of every phrase on disk
+    private final Map<String, CachedPhrase> resident = new LinkedHashMap<>(16, 0.75f, true) { // Least recently played first
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPhrase> eldest) {
+            return size() > MAX_RESIDENT_PHRASES;
+        }
+    };
+    private SourceDataLine line; // Opened on first playback and reused while the format stays the same
+
+    /**
+     * Creates a cache backed by a directory. Nothing is read until {@link #load()} is called.
+     *
+     * @param directory The directory holding the rendered phrases; created when the first phrase is rendered.
+     */
+    public SpeechCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Lists the phrases already rendered to disk, without reading them. Temporary files left by
+     * a render that never finished are deleted.
+     */
+    public void load() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX + EXTENSION)) {
+                    deleteQuietly(file);
+                    continue;
+                }
+                rendered.add(name.substring(0, name.length() - EXTENSION.length()));
+            }
+        } catch (IOException e) {
+            System.out.println("Error reading the speech cache.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Checks if a phrase has been rendered.
+     *
+     * @param text The phrase.
+     * @return true if the phrase can be played without synthesizing it.
+     */
+    public boolean contains(String text) {
+        return rendered.contains(keyOf(text));
+    }
+
+    /**
+     * Synthesizes a phrase with the given voice and adds it to the cache. The audio is written to
+     * a temporary file and atomically renamed, so a crash never leaves a truncated phrase behind.
+     *
+     * @param voice An allocated voice. Its audio player is restored afterwards.
+     * @param text  The phrase to render.
+     */
+    public void render(Voice voice, String text) {
+        String key = keyOf(text);
+        Path file = directory.resolve(key + EXTENSION);
+        Path temp = directory.resolve(key + TEMP_SUFFIX + EXTENSION);
+        AudioPlayer speaker = voice.getAudioPlayer();
+        try {
+            Files.createDirectories(directory);
+            // SingleFileAudioPlayer appends the extension to the base name itself.
+            SingleFileAudioPlayer recorder = new SingleFileAudioPlayer(directory.resolve(key + TEMP_SUFFIX).toString(), AudioFileFormat.Type.WAVE);
+            voice.setAudioPlayer(recorder);
+            voice.speak(text);
+            recorder.close();
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            rendered.add(key);
+        } catch (IOException e) {
+            System.out.println("Error writing the speech cache.");
+            e.printStackTrace();
+        } finally {
+            voice.setAudioPlayer(speaker);
+        }
+    }
+
+    /**
+     * Plays a cached phrase, blocking until it has finished. A phrase that is not in memory is
+     * read from disk first.
+     *
+     * @param text The phrase to play.
+     * @return false if the phrase is not cached or could not be played, in which case nothing was played.
+     */
+    public boolean play(String text) {
+        String key = keyOf(text);
+        CachedPhrase phrase = resident.get(key);
+        if (phrase == null) {
+            if (!rendered.contains(key)) {
+                return false;
+            }
+            phrase = read(directory.resolve(key + EXTENSION));
+            if (phrase == null) {
+                rendered.remove(key); // Unreadable, so it will be rendered again.
+                return false;
+            }
+            resident.put(key, phrase);
+        }
+        try {
+            if (line == null || !line.getFormat().matches(phrase.format())) {
+                closeLine();
+                line = AudioSystem.getSourceDataLine(phrase.format());
+                line.open(phrase.format());
+                line.start();
+            }
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            System.out.println("Error opening an audio line for cached speech.");
+            e.printStackTrace();
+            closeLine();
+            return false;
+        }
+        line.write(phrase.pcm(), 0, phrase.pcm().length);
+        line.drain();
+        return true;
+    }
+
+    /**
+     * Returns the number of phrases rendered to disk.
+     *
+     * @return The number of cached phrases.
+     */
+    public int size() {
+        return rendered.size();
+    }
+
+    @Override
+    public void close() {
+        closeLine();
+    }
+
+    private void closeLine() {
+        if (line != null) {
+            line.close();
+            line = null;
+        }
+    }
+
+    /**
+     * Turns a phrase into the name it is cached under, for example
+     * {@code move-ring-3-from-tower-1-to-tower-2}.
+     *
+     * @param text The phrase.
+     * @return A file-name-safe key.
+     */
+    static String keyOf(String text) {
+        String key = text.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
+        return key.replaceAll("^-+|-+$", "");
+    }
+
+    /**
+     * Decodes a WAV file into raw PCM.
+     *
+     * @param file The file to read.
+     * @return The decoded phrase, or null if the file is not readable audio.
+     */
+    private static CachedPhrase read(Path file) {
+        try (AudioInputStream audio = AudioSystem.getAudioInputStream(file.toFile())) {
+            return new CachedPhrase(audio.getFormat(), audio.readAllBytes());
+        } catch (IOException | UnsupportedAudioFileException e) {
+            System.out.println("Error reading cached speech " + file.getFileName() + ".");
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a leftover file, reporting rather than throwing if it cannot be deleted.
+     *
+     * @param file The file to delete.
+     */
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.out.println("Error deleting " + file.getFileName() + " from the speech cache.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A phrase decoded into memory.
+     *
+     * @param format The PCM format.
+     * @param pcm    The samples.
+     */
+    private record CachedPhrase(AudioFormat format, byte[] pcm) {
+    }
+}
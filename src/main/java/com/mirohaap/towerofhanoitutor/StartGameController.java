@@ -3,46 +3,124 @@ package com.mirohaap.towerofhanoitutor;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Spinner;
 import javafx.scene.control.SpinnerValueFactory;
 import javafx.stage.Stage;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
 
 /**
  * Controller class for the start game UI of the Tower of Hanoi tutor application.
  * Manages the interactions with UI components like the start button, ring counter spinner, and tutor mode checkbox.
  */
 public class StartGameController {
+    private static final double REPLAY_SPEED = 1.0; // Recordings are replayed at the pace they were played
+
     @FXML
     private Button startButton;
     @FXML
     private Spinner<Integer> ringCounter;
     @FXML
+    private Spinner<Integer> towerCounter;
+    @FXML
     private CheckBox tutorCheckBox;
+    @FXML
+    private ChoiceBox<PuzzleMode> modeBox;
+    private final Random random = new Random();
 
     /**
-     * Initializes the controller, setting up the ring counter spinner with values from 3 to 10 and default value 6.
+     * Initializes the controller, setting up the ring counter spinner with values from 3 to
+     * {@link OptimalSolution#MAX_RINGS} and default value 6, the largest game whose moves can be
+     * counted. Games with more than 10 rings are drawn on a canvas. The tower counter goes from 3 to {@link TowerState#MAX_TOWERS}; games on
+     * more than three towers are always classic, so the mode box is disabled for them. The mode
+     * box offers the classic game and the scrambled puzzles.
+     * Ticking the tutor checkbox starts loading the tutor's voice in the background, so it is
+     * ready by the time the game starts.
      */
     @FXML
     private void initialize() {
-        SpinnerValueFactory<Integer> valueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(3, 10, 6);
+        SpinnerValueFactory<Integer> valueFactory = new SpinnerValueFactory.IntegerSpinnerValueFactory(3, OptimalSolution.MAX_RINGS, 6);
         ringCounter.setValueFactory(valueFactory);
         valueFactory.setWrapAround(true);
+        towerCounter.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(TowerState.TOWER_COUNT, TowerState.MAX_TOWERS, TowerState.TOWER_COUNT));
+        modeBox.getItems().setAll(PuzzleMode.values());
+        modeBox.setValue(PuzzleMode.CLASSIC);
+        modeBox.disableProperty().bind(towerCounter.valueProperty().isNotEqualTo(TowerState.TOWER_COUNT));
+        tutorCheckBox.selectedProperty().addListener((observable, wasSelected, selected) -> {
+            if (selected) {
+                Tutor.getInstance().warmUp();
+            }
+        });
     }
 
     /**
      * Handles the action when the start game button is clicked.
-     * This method sets up the game based on the selected options and launches the main game window.
+     * This method sets up the game based on the selected options and launches the main game
+     * window. Classic three-tower games are recorded; puzzles start from a random configuration
+     * and are not, and neither are games on more towers, since recordings store three towers.
      *
      * @throws IOException If there is an error loading the game-view FXML.
      */
     @FXML
     private void startGameClicked() throws IOException {
+        int numRings = ringCounter.getValue();
+        int numTowers = towerCounter.getValue();
+        PuzzleMode mode = modeBox.getValue();
+        GameController gameController = openGame(numRings, numTowers, tutorCheckBox.isSelected());
+        if (numTowers != TowerState.TOWER_COUNT) {
+            return;
+        }
+        if (mode != PuzzleMode.CLASSIC) {
+            TowerState start = mode.randomStart(numRings, random);
+            gameController.startPuzzle(start, mode.randomGoal(start, random));
+            return;
+        }
+        try {
+            Repository.getInstance().setRecorder(SessionRecorder.create(SessionRecorder.DEFAULT_DIRECTORY, numRings));
+        } catch (IOException e) {
+            System.out.println("Error creating session recording, the game will not be recorded.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Handles the action when the replay button is clicked: opens the most recent recorded game
+     * and plays it back at the recorded pace.
+     *
+     * @throws IOException If there is an error loading the game-view FXML or reading the recording.
+     */
+    @FXML
+    private void replayLastClicked() throws IOException {
+        Path latest = SessionReplayer.findLatest(SessionRecorder.DEFAULT_DIRECTORY);
+        if (latest == null) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, "No recorded games yet.", ButtonType.OK);
+            alert.showAndWait();
+            return;
+        }
+        SessionReplayer replayer = new SessionReplayer(latest);
+        GameController gameController = openGame(replayer.getRingCount(), TowerState.TOWER_COUNT, false);
+        gameController.replay(replayer, REPLAY_SPEED);
+    }
+
+    /**
+     * Launches the main game window and closes the start screen.
+     *
+     * @param numRings     The number of rings in the game.
+     * @param numTowers    The number of towers in the game.
+     * @param tutorEnabled Whether the tutor helps in this game.
+     * @return The controller of the new game window.
+     * @throws IOException If there is an error loading the game-view FXML.
+     */
+    private GameController openGame(int numRings, int numTowers, boolean tutorEnabled) throws IOException {
         // Enable or disable the tutor based on the checkbox
-        if (tutorCheckBox.isSelected()) {
+        if (tutorEnabled) {
             Tutor.getInstance().enable();
         } else {
             Tutor.getInstance().disable();
@@ -55,7 +133,7 @@ public class StartGameController {
         GameController gameController = fxmlLoader.getController();
 
         // If tutor mode is enabled, display the helper text
-        if (tutorCheckBox.isSelected()) {
+        if (tutorEnabled) {
             gameController.textToDisplay("I'm here to help! Play when you are ready!");
         }
 
@@ -64,16 +142,16 @@ public class StartGameController {
         gameStage.setResizable(false);
         gameStage.show();
 
-        // Initialize the game with the selected number of rings
-        int numRings = ringCounter.getValue();
-        gameController.initRings(numRings);
-
         // Pass the game controller to the tutor for further interactions
         Tutor.getInstance().setController(gameController);
-        Tutor.getInstance().calculateMoves(numRings);
+        Tutor.getInstance().calculateMoves(numRings, numTowers);
+
+        // Initialize the game with the selected number of rings and towers
+        gameController.initRings(numRings, numTowers);
 
         // Close the current (start game) window
         Stage currentStage = (Stage) startButton.getScene().getWindow();
         currentStage.close();
+        return gameController;
     }
 }
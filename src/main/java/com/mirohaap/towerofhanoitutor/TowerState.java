@@ -0,0 +1,272 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.util.Arrays;
+
+/**
+ * Primitive model of the rings on the towers. Each ring's tower is kept in a packed array,
+ * and each tower keeps a bitmask of the rings it holds (bit {@code r - 1} for ring {@code r}).
+ * Because a tower is always sorted, its top ring is the lowest set bit and its height is the
+ * bit count, so every query is O(1) and nothing is allocated or boxed.
+ * <p>
+ * Rings are numbered from 1 (smallest) and towers are indexed from 0. The classic game has
+ * {@link #TOWER_COUNT} towers; multi-peg games have up to {@link #MAX_TOWERS}.
+ * </p>
+ */
+public class TowerState {
+    public static final int MAX_RINGS = 64;
+    public static final int TOWER_COUNT = 3; // Towers in the classic game
+    public static final int MAX_TOWERS = 8;
+
+    private final int ringCount;
+    private final int towerCount;
+    private final byte[] ringTowers; // Tower index of ring r is stored at r - 1.
+    private final long[] towerMasks;
+
+    /**
+     * Creates a classic three-tower state with every ring stacked on the first tower.
+     *
+     * @param ringCount The number of rings, from 1 to {@link #MAX_RINGS}.
+     */
+    public TowerState(int ringCount) {
+        this(ringCount, TOWER_COUNT);
+    }
+
+    /**
+     * Creates a state with every ring stacked on the first tower.
+     *
+     * @param ringCount  The number of rings, from 1 to {@link #MAX_RINGS}.
+     * @param towerCount The number of towers, from {@link #TOWER_COUNT} to {@link #MAX_TOWERS}.
+     */
+    public TowerState(int ringCount, int towerCount) {
+        if (ringCount < 1 || ringCount > MAX_RINGS) {
+            throw new IllegalArgumentException("Ring count must be between 1 and " + MAX_RINGS + ", got " + ringCount);
+        }
+        if (towerCount < TOWER_COUNT || towerCount > MAX_TOWERS) {
+            throw new IllegalArgumentException("Tower count must be between " + TOWER_COUNT + " and " + MAX_TOWERS + ", got " + towerCount);
+        }
+        this.ringCount = ringCount;
+        this.towerCount = towerCount;
+        this.ringTowers = new byte[ringCount];
+        this.towerMasks = new long[towerCount];
+        reset();
+    }
+
+    /**
+     * Stacks every ring back on the first tower.
+     */
+    public void reset() {
+        Arrays.fill(ringTowers, (byte) 0);
+        Arrays.fill(towerMasks, 0L);
+        towerMasks[0] = fullMask();
+    }
+
+    /**
+     * Replaces the configuration with the given one.
+     *
+     * @param towers An array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}.
+     */
+    public void load(int[] towers) {
+        if (towers.length != ringCount) {
+            throw new IllegalArgumentException("Expected " + ringCount + " rings, got " + towers.length);
+        }
+        Arrays.fill(towerMasks, 0L);
+        for (int ring = 1; ring <= ringCount; ring++) {
+            int tower = towers[ring - 1] - 1;
+            ringTowers[ring - 1] = (byte) tower;
+            towerMasks[tower] |= bit(ring);
+        }
+    }
+
+    /**
+     * Replaces the configuration with one given as tower masks, as returned by {@link #getMask(int)}.
+     *
+     * @param masks The ring mask of each tower.
+     */
+    public void loadMasks(long[] masks) {
+        if (masks.length != towerCount) {
+            throw new IllegalArgumentException("Expected " + towerCount + " tower masks, got " + masks.length);
+        }
+        long all = 0;
+        for (long mask : masks) {
+            if ((all & mask) != 0) {
+                throw new IllegalArgumentException("A ring cannot be on two towers");
+            }
+            all |= mask;
+        }
+        if (all != fullMask()) {
+            throw new IllegalArgumentException("Tower masks do not hold exactly the " + ringCount + " rings");
+        }
+        for (int tower = 0; tower < towerCount; tower++) {
+            towerMasks[tower] = masks[tower];
+            for (long mask = masks[tower]; mask != 0; mask &= mask - 1) {
+                ringTowers[Long.numberOfTrailingZeros(mask)] = (byte) tower;
+            }
+        }
+    }
+
+    /**
+     * Replaces the configuration with a copy of another state's.
+     *
+     * @param other A state with the same ring and tower counts.
+     */
+    public void copyFrom(TowerState other) {
+        if (other.ringCount != ringCount || other.towerCount != towerCount) {
+            throw new IllegalArgumentException("Expected " + ringCount + " rings on " + towerCount + " towers, got "
+                    + other.ringCount + " on " + other.towerCount);
+        }
+        System.arraycopy(other.ringTowers, 0, ringTowers, 0, ringCount);
+        System.arraycopy(other.towerMasks, 0, towerMasks, 0, towerCount);
+    }
+
+    /**
+     * Checks whether another state has every ring on the same tower as this one.
+     *
+     * @param other The state to compare with.
+     * @return true if both states have the same rings on the same towers.
+     */
+    public boolean matches(TowerState other) {
+        return other.ringCount == ringCount && Arrays.equals(other.towerMasks, towerMasks);
+    }
+
+    /**
+     * Copies the configuration into an array in the format taken by {@link #load(int[])}.
+     *
+     * @param towers An array of at least the ring count, where element {@code r - 1} receives the
+     *               tower (numbered from 1) holding ring {@code r}.
+     */
+    public void getTowers(int[] towers) {
+        for (int ring = 1; ring <= ringCount; ring++) {
+            towers[ring - 1] = ringTowers[ring - 1] + 1;
+        }
+    }
+
+    /**
+     * Moves the top ring of one tower onto another. Legality is the caller's responsibility.
+     *
+     * @param from The index of the tower to take the ring from.
+     * @param to   The index of the tower to put the ring on.
+     * @return The ring that was moved.
+     */
+    public int moveTop(int from, int to) {
+        int ring = getTop(from);
+        if (ring == -1) {
+            throw new IllegalStateException("Tower " + (from + 1) + " has no rings to move.");
+        }
+        long ringBit = bit(ring);
+        towerMasks[from] &= ~ringBit;
+        towerMasks[to] |= ringBit;
+        ringTowers[ring - 1] = (byte) to;
+        return ring;
+    }
+
+    /**
+     * Checks whether the top ring of one tower may legally be placed on another.
+     *
+     * @param from The index of the source tower.
+     * @param to   The index of the destination tower.
+     * @return true if the source has a ring and it is smaller than the destination's top ring.
+     */
+    public boolean canMove(int from, int to) {
+        long source = towerMasks[from];
+        return from != to && source != 0 && Long.compareUnsigned(Long.lowestOneBit(source), Long.lowestOneBit(towerMasks[to]) - 1) <= 0;
+    }
+
+    /**
+     * Returns the index of the tower a ring is on.
+     *
+     * @param ring The ring to find.
+     * @return The zero-based tower index.
+     */
+    public int getTowerOf(int ring) {
+        return ringTowers[ring - 1];
+    }
+
+    /**
+     * Returns the ring on top of a tower.
+     *
+     * @param tower The index of the tower.
+     * @return The top ring, or -1 if the tower is empty.
+     */
+    public int getTop(int tower) {
+        long mask = towerMasks[tower];
+        return mask == 0 ? -1 : Long.numberOfTrailingZeros(mask) + 1;
+    }
+
+    /**
+     * Checks if a ring is at the top of its tower.
+     *
+     * @param ring The ring to check.
+     * @return true if no smaller ring sits on the same tower.
+     */
+    public boolean isTop(int ring) {
+        return Long.lowestOneBit(towerMasks[ringTowers[ring - 1]]) == bit(ring);
+    }
+
+    /**
+     * Returns the number of rings on a tower.
+     *
+     * @param tower The index of the tower.
+     * @return The tower's height.
+     */
+    public int getSize(int tower) {
+        return Long.bitCount(towerMasks[tower]);
+    }
+
+    /**
+     * Returns how many rings are underneath a ring on its tower.
+     *
+     * @param ring The ring to check.
+     * @return 0 for a ring at the bottom of its tower.
+     */
+    public int getHeight(int ring) {
+        // Every larger ring on the tower is below this one; the double shift handles ring 64.
+        return Long.bitCount(towerMasks[ringTowers[ring - 1]] >>> (ring - 1) >>> 1);
+    }
+
+    /**
+     * Returns the bitmask of rings on a tower, with bit {@code r - 1} set for ring {@code r}.
+     *
+     * @param tower The index of the tower.
+     * @return The tower's ring mask.
+     */
+    public long getMask(int tower) {
+        return towerMasks[tower];
+    }
+
+    /**
+     * Checks whether every ring is stacked on a single tower.
+     *
+     * @param tower The index of the tower.
+     * @return true if the tower holds all rings.
+     */
+    public boolean isComplete(int tower) {
+        return towerMasks[tower] == fullMask();
+    }
+
+    public int getRingCount() {
+        return ringCount;
+    }
+
+    public int getTowerCount() {
+        return towerCount;
+    }
+
+    /**
+     * Returns the mask with a bit set for every ring in the game.
+     *
+     * @return The full-tower mask.
+     */
+    private long fullMask() {
+        return ringCount == MAX_RINGS ? -1L : (1L << ringCount) - 1;
+    }
+
+    /**
+     * Returns the mask bit of a ring.
+     *
+     * @param ring The ring number.
+     * @return The ring's bit.
+     */
+    private static long bit(int ring) {
+        return 1L << (ring - 1);
+    }
+}
@@ -3,8 +3,9 @@ package com.mirohaap.towerofhanoitutor;
 import com.sun.speech.freetts.Voice;
 import com.sun.speech.freetts.VoiceManager;
 
-import java.util.ArrayList;
-
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * The {@code Tutor} class represents a tutor for the Tower of Hanoi puzzle,
@@ -13,41 +14,109 @@ import java.util.ArrayList;
  * to the user. It implements a singleton pattern to ensure only one instance of
  * the tutor is active at any time.
  * <p>
- * The class calculates the optimal move sequence for a given number of rings and
- * provides real-time feedback to the user about the correctness of their moves.
- * Vocal feedback is provided through a text-to-speech engine, aiming to guide the
- * user to the solution with auditory cues.
+ * The class judges each move against the board as it actually is, so the player may stray
+ * from the canonical solution, and provides real-time feedback to the user about the
+ * correctness of their moves. Vocal feedback is provided through a text-to-speech engine on
+ * a background thread, aiming to guide the user to the solution with auditory cues.
  * </p>
  */
 public class Tutor {
 
-    private static Tutor _instance; // Singleton instance of the Tutor
     private boolean enabled = false; // Flag to enable or disable tutor feedback
-    private ArrayList<Move> bestMoves = new ArrayList<>(); // List of calculated best moves
-    private int moveNumber = 0; // Index for the current move in the bestMoves list
-    private volatile boolean isSpeaking = false; // Flag to prevent overlapping speech threads
+    private int numRings = 0; // Number of rings in the current game, 0 until calculateMoves is called
+    private int towerCount = TowerState.TOWER_COUNT; // Number of towers in the current game
+    private long totalMoves = 0; // Length of the optimal solution for the current game
+    private long moveNumber = 0; // Cursor into the optimal solution
+    private int goal = 3; // The winning tower the player is heading for, 2 or 3
+    private TowerState targetState; // The configuration the puzzle must end in, or null if tower 2 or 3 wins
+    private boolean classicStart = true; // Whether the game started with every ring on tower 1 and any full tower wins
+    private Move lastBestMove; // The last move accepted or played as optimal
+    private static final System.Logger LOG = System.getLogger(Tutor.class.getName());
+    private static final String GREETING = "Im here to help! Play when you are ready!";
+    private final SpeechCache speechCache = new SpeechCache(SpeechCache.DEFAULT_DIRECTORY);
+    private static final int EAGER_RINGS = 4; // Rings whose hints are pre-rendered; together they make up 15/16 of the moves
+    private volatile int cachedRings = 0; // Rings whose hint phrases the speech thread should pre-render
+    private volatile int cachedTowers = TowerState.TOWER_COUNT; // Towers those phrases should cover
+    private int renderCursor = 0; // Index of the next phrase to check for pre-rendering; speech thread only
+    private int cursorRings = 0, cursorTowers = 0; // The limits renderCursor counts through; speech thread only
+    private final BlockingQueue<String> speechQueue = new ArrayBlockingQueue<>(1); // Holds only the newest pending message
+    private Thread speechWorker; // Loads the voice, then speaks queued messages; null until warmUp is called
+    private volatile long firstRequestNanos = 0; // When the first message was requested, 0 until then
+    private volatile long timeToFirstHintMillis = -1; // Delay until the first message started playing, -1 until then
     private GameController controller;
     Voice voice; // Voice object for text-to-speech functionality
 
     /**
      * Private constructor for the Tutor class.
-     * Initializes the text-to-speech engine and vocalizes an introductory message.
+     * The voice is not loaded here; see {@link #warmUp()}.
      * This constructor is private to enforce the singleton pattern.
      */
 
 
     private Tutor() {
-        initializeVoice();
     }
 
     /**
-     * Calculates the optimal sequence of moves for solving the Tower of Hanoi puzzle
-     * with a specified number of rings.
+     * Prepares the optimal solution for the Tower of Hanoi puzzle with a specified number
+     * of rings and rewinds the cursor to its first move. Moves are computed on demand, so
+     * this takes constant time and memory regardless of the ring count.
      *
      * @param numRings the number of rings in the Tower of Hanoi puzzle
      */
     public void calculateMoves(int numRings) {
-        computeBestMoves(numRings, 1, 3, 2);
+        calculateMoves(numRings, TowerState.TOWER_COUNT);
+    }
+
+    /**
+     * Prepares the optimal solution for a puzzle on any number of towers and rewinds the cursor
+     * to its first move. With more than three towers the solution is the Frame-Stewart one, from
+     * the first tower to the last.
+     *
+     * @param numRings   the number of rings in the puzzle
+     * @param towerCount the number of towers, from {@link TowerState#TOWER_COUNT} to {@link TowerState#MAX_TOWERS}
+     */
+    public void calculateMoves(int numRings, int towerCount) {
+        totalMoves = towerCount == TowerState.TOWER_COUNT ? OptimalSolution.totalMoves(numRings)
+                : FrameStewartSolver.totalMoves(towerCount, numRings);
+        this.numRings = numRings;
+        this.towerCount = towerCount;
+        moveNumber = 0;
+        goal = 3;
+        targetState = null;
+        classicStart = true;
+        lastBestMove = null;
+        cachedRings = Math.max(cachedRings, Math.min(numRings, EAGER_RINGS));
+        cachedTowers = Math.max(cachedTowers, towerCount);
+    }
+
+    /**
+     * Prepares the tutor for a puzzle that starts from any configuration, and rewinds the cursor.
+     * The cursor then counts the moves made along the shortest solution, from 0 to its length,
+     * but unlike the classic game's the solution cannot be indexed by {@link #getBestMove(long)}.
+     *
+     * @param start  the configuration the puzzle starts from
+     * @param target the configuration the puzzle must end in, or null if every ring on tower 2 or 3 wins
+     */
+    public void calculateMoves(TowerState start, TowerState target) {
+        calculateMoves(start.getRingCount());
+        targetState = target;
+        classicStart = target == null && start.isComplete(0);
+        goal = MoveOracle.nearestGoal(start) + 1;
+        totalMoves = target != null ? ConfigurationSolver.moveCount(start, target) : MoveOracle.distanceToGoal(start);
+    }
+
+    /**
+     * Starts loading the voice on the speech thread, which then speaks every message, if it has not
+     * been started already. Call this as soon as it is known that the tutor will be used, so the
+     * first hint is not delayed by it.
+     */
+    public synchronized void warmUp() {
+        if (speechWorker != null) {
+            return;
+        }
+        speechWorker = new Thread(this::runSpeechWorker, "tutor-speech");
+        speechWorker.setDaemon(true);
+        speechWorker.start();
     }
 
     /**
@@ -55,6 +124,7 @@ public class Tutor {
      * This method sets various parameters to customize the voice's pitch, rate, and volume.
      */
     private void initializeVoice() {
+        long start = System.nanoTime();
         VoiceManager voiceManager = VoiceManager.getInstance();
         System.setProperty("freetts.voices", "com.sun.speech.freetts.en.us.cmu_us_kal.KevinVoiceDirectory");
         voice = voiceManager.getVoice("kevin16");
@@ -62,35 +132,129 @@ public class Tutor {
         voice.setRate(110);
         voice.setPitch(100);
         voice.setVolume(0.8f);
+        LOG.log(System.Logger.Level.DEBUG, "Voice loaded in {0} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Body of the speech thread: loads the voice and the speech cache, then speaks queued messages
+     * until the application exits. Whenever the queue is empty, one missing phrase is rendered
+     * into the cache before checking again. A message that is not cached is rendered before it
+     * is played, so it is cached from then on.
+     */
+    private void runSpeechWorker() {
+        try {
+            speechCache.load();
+            initializeVoice();
+        } catch (RuntimeException e) {
+            System.out.println("Error loading the tutor voice.");
+            e.printStackTrace();
+            return;
+        }
+        try {
+            while (true) {
+                String message = speechQueue.poll();
+                if (message == null) {
+                    String uncached = nextUncachedPhrase();
+                    if (uncached != null) {
+                        speechCache.render(voice, uncached);
+                        continue;
+                    }
+                    message = speechQueue.take();
+                }
+                if (timeToFirstHintMillis < 0) {
+                    timeToFirstHintMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstRequestNanos);
+                    LOG.log(System.Logger.Level.DEBUG, "Time to first hint: {0} ms", timeToFirstHintMillis);
+                }
+                if (!speechCache.play(message)) {
+                    LOG.log(System.Logger.Level.DEBUG, "Speech cache miss: {0}", message);
+                    speechCache.render(voice, message);
+                    if (!speechCache.play(message)) {
+                        voice.speak(message);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            speechCache.close();
+        }
+    }
+
+    /**
+     * Finds the next phrase to pre-render. Smaller rings come first, since they are moved most
+     * often. The search resumes where the last one stopped, and starts over only when a larger
+     * game raises the limits.
+     *
+     * @return the phrase, or null if every phrase for the pre-rendered rings has been checked
+     */
+    private String nextUncachedPhrase() {
+        if (!speechCache.contains(GREETING)) {
+            return GREETING;
+        }
+        int rings = cachedRings, towers = cachedTowers;
+        if (rings != cursorRings || towers != cursorTowers) {
+            renderCursor = 0;
+            cursorRings = rings;
+            cursorTowers = towers;
+        }
+        int pairs = towers * (towers - 1);
+        while (renderCursor < rings * pairs) {
+            int ring = renderCursor / pairs + 1, pair = renderCursor % pairs;
+            int from = pair / (towers - 1) + 1, to = pair % (towers - 1) + 1;
+            if (to >= from) {
+                to++; // Skip the move from a tower to itself.
+            }
+            renderCursor++;
+            String phrase = new Move(ring, from, to).toString();
+            if (!speechCache.contains(phrase)) {
+                return phrase;
+            }
+        }
+        return null;
     }
 
 
     /**
      * Provides auditory feedback to the user by vocalizing a given message.
-     * If the tutor is already speaking, subsequent calls to this method will be ignored
-     * to prevent overlapping speech.
+     * Messages are spoken one at a time on the speech thread. If a message is still waiting
+     * when a new one arrives, it is replaced, so the tutor always speaks the newest hint.
+     * The voice is loaded first if {@link #warmUp()} has not been called.
      *
      * @param message the message to be vocalized
      */
 
     public void speak(String message) {
-        if (isSpeaking) {
-            return;
+        if (firstRequestNanos == 0) {
+            firstRequestNanos = System.nanoTime();
         }
+        warmUp();
+        while (!speechQueue.offer(message)) {
+            speechQueue.poll(); // Drop the stale message; the worker may also have just taken it.
+        }
+    }
 
-        new Thread(() -> {
-            try {
-                isSpeaking = true;
-                voice.speak(message);
-            } finally {
-                isSpeaking = false;
-            }
-        }).start();
+    /**
+     * Returns how long the first message waited before it started playing, including any time
+     * spent loading the voice.
+     *
+     * @return the delay in milliseconds, or -1 if nothing has been spoken yet
+     */
+    public long getTimeToFirstHintMillis() {
+        return timeToFirstHintMillis;
     }
 
     /**
-     * Checks if a given move is the best move according to the pre-calculated sequence.
-     * If the move is not the best move, it provides vocal feedback indicating the correct move.
+     * Checks if a given move is a best move from the current board, that is, the next move of a
+     * shortest way to win. If it is not, it provides vocal feedback indicating the correct move.
+     * Must be called before the move is applied.
+     * <p>
+     * On three towers the move is judged by {@link MoveOracle}, which follows both winning towers,
+     * and the cursor moves to the solution toward whichever of them the player is heading for; a
+     * puzzle with a target is judged by {@link ConfigurationSolver} instead. On more towers the
+     * move must be the next one of the Frame-Stewart solution, from the split tables of
+     * {@link FrameStewartSolver}; since a wrong move is never applied while the tutor is enabled,
+     * the cursor alone keeps track of the board.
+     * </p>
      *
      * @param move the move made by the user
      * @return {@code true} if the move is the best move, {@code false} otherwise
@@ -99,31 +263,63 @@ public class Tutor {
         if (!enabled) {
             return true;
         }
-        if (!move.equals(bestMoves.get(moveNumber))) {
-            speak(bestMoves.get(moveNumber).toString());
-            controller.textToDisplay(bestMoves.get(moveNumber).toString());
-            return false;
+        if (towerCount != TowerState.TOWER_COUNT) {
+            Move best = FrameStewartSolver.moveAt(towerCount, numRings, moveNumber);
+            if (!move.equals(best)) {
+                giveHint(best);
+                return false;
+            }
+            moveNumber++;
+            lastBestMove = move;
+            return true;
         }
-
-        moveNumber += 1;
+        TowerState state = Repository.getInstance().getState();
+        if (targetState != null) {
+            if (!ConfigurationSolver.isOptimalMove(state, targetState, move.getN(), move.getFrom(), move.getTo())) {
+                giveHint(ConfigurationSolver.nextMove(state, targetState));
+                return false;
+            }
+            moveNumber = totalMoves - ConfigurationSolver.moveCount(state, targetState) + 1;
+        } else {
+            int advanced = MoveOracle.goalAdvancedBy(state, move.getN(), move.getFrom(), move.getTo());
+            if (advanced < 0) {
+                giveHint(MoveOracle.nextMove(state));
+                return false;
+            }
+            goal = advanced + 1;
+            moveNumber = totalMoves - MoveOracle.distance(state, advanced) + 1;
+        }
+        lastBestMove = move;
         return true;
     }
 
+    /**
+     * Speaks and displays the move the player should have made.
+     *
+     * @param best the best move, or null if there is none
+     */
+    private void giveHint(Move best) {
+        if (best == null) {
+            return;
+        }
+        speak(best.toString());
+        if (controller != null) {
+            controller.textToDisplay(best.toString());
+        }
+    }
+
     /**
      * Validates a move made by the user against the pre-calculated best moves.
-     * The validation result is also set in the move object.
      *
      * @param move the move to validate
-     * @return {@code true} if the move is valid, {@code false} otherwise
+     * @return the same move, marked valid if it is a best move and invalid otherwise
      */
-    public boolean validateMove(Move move) {
-        if (bestMoves.isEmpty()) {
+    public Move validateMove(Move move) {
+        if (totalMoves == 0) {
             throw new RuntimeException("Tutor validation called before calculateMoves called!");
         }
 
-        boolean moveStatus = isBestMove(move);
-        move.setValid(moveStatus);
-        return moveStatus;
+        return move.withValid(isBestMove(move));
     }
 
     /**
@@ -147,51 +343,95 @@ public class Tutor {
      */
     public void enable() {
         enabled = true;
-        speak("Im here to help! Play when you are ready!");
+        warmUp();
+        speak(GREETING);
     }
 
 
     /**
-     * Adds a best move to the sequence of best moves for solving the puzzle.
+     * Returns the move at the given position of the optimal solution for the current game,
+     * toward the tower the player is heading for.
      *
-     * @param n    the number of the ring being moved
-     * @param from the starting rod
-     * @param to   the destination rod
+     * @param index the zero-based position of the move
+     * @return the optimal move at that position
      */
-    public void addBestMove(int n, int from, int to) {
-        Move move = new Move(n, from, to);
-        bestMoves.add(move);
+    public Move getBestMove(long index) {
+        checkIndexedSolution();
+        if (towerCount != TowerState.TOWER_COUNT) {
+            return FrameStewartSolver.moveAt(towerCount, numRings, index);
+        }
+        Move move = OptimalSolution.moveAt(numRings, index);
+        return goal == 3 ? move : new Move(move.getN(), mirror(move.getFrom()), mirror(move.getTo()));
     }
 
-    public Move getNextMove() {
-        if (bestMoves.isEmpty()) {
-            throw new RuntimeException("Tutor called before calculateMoves called!");
+    /**
+     * Returns the configuration after a number of moves of the optimal solution for the current
+     * game, toward the tower the player is heading for.
+     *
+     * @param moveNumber the number of optimal moves made
+     * @return an array where element {@code r - 1} is the tower (numbered from 1) holding ring {@code r}
+     */
+    public int[] stateAt(long moveNumber) {
+        checkIndexedSolution();
+        if (towerCount != TowerState.TOWER_COUNT) {
+            return FrameStewartSolver.stateAt(towerCount, numRings, moveNumber);
         }
-
-        moveNumber += 1;
-        return bestMoves.get(moveNumber - 1);
-
+        int[] ringTowers = OptimalSolution.stateAt(numRings, moveNumber);
+        if (goal != 3) {
+            for (int i = 0; i < ringTowers.length; i++) {
+                ringTowers[i] = mirror(ringTowers[i]);
+            }
+        }
+        return ringTowers;
     }
 
+    /**
+     * Verifies that the current game follows an indexed optimal solution, which starts with
+     * every ring on tower 1.
+     */
+    private void checkIndexedSolution() {
+        if (totalMoves == 0) {
+            throw new RuntimeException("Tutor called before calculateMoves called!");
+        }
+        if (!classicStart) {
+            throw new IllegalStateException("Only the classic game's solution can be indexed");
+        }
+    }
 
     /**
-     * Recursively computes the optimal sequence of moves for solving the Tower of Hanoi puzzle.
-     * This method is called internally by {@code calculateMoves}.
+     * Swaps towers 2 and 3, turning the solution toward tower 3 into the one toward tower 2.
      *
-     * @param n        the number of rings to move
-     * @param from_rod the starting rod
-     * @param to_rod   the destination rod
-     * @param aux_rod  the auxiliary rod
+     * @param tower a tower, numbered from 1
+     * @return the tower it maps to
      */
+    private static int mirror(int tower) {
+        return tower == 1 ? 1 : 5 - tower;
+    }
 
-    private void computeBestMoves(int n, int from_rod, int to_rod, int aux_rod) {
-        if (n == 1) {
-            addBestMove(1, from_rod, to_rod);
-            return;
+    /**
+     * Returns the next move of the shortest way from the current board to the puzzle's target,
+     * or to the tower the player is heading for, and advances the cursor past it. On more than
+     * three towers it is the Frame-Stewart move at the cursor.
+     *
+     * @return the next move
+     */
+    public Move getNextMove() {
+        if (towerCount != TowerState.TOWER_COUNT) {
+            if (!movesLeft()) {
+                throw new RuntimeException("There are no more moves to make!");
+            }
+            lastBestMove = FrameStewartSolver.moveAt(towerCount, numRings, moveNumber++);
+            return lastBestMove;
         }
-        computeBestMoves(n - 1, from_rod, aux_rod, to_rod);
-        addBestMove(n, from_rod, to_rod);
-        computeBestMoves(n - 1, aux_rod, to_rod, from_rod);
+        TowerState state = Repository.getInstance().getState();
+        Move next = targetState != null ? ConfigurationSolver.nextMove(state, targetState) : MoveOracle.nextMove(state, goal - 1);
+        if (next == null) {
+            throw new RuntimeException("There are no more moves to make!");
+        }
+        long remaining = targetState != null ? ConfigurationSolver.moveCount(state, targetState) : MoveOracle.distance(state, goal - 1);
+        moveNumber = totalMoves - remaining + 1;
+        lastBestMove = next;
+        return next;
     }
 
     public void revertMove() {
@@ -202,7 +442,51 @@ public class Tutor {
         }
     }
 
-    public int getMoveNumber() {
+    /**
+     * Moves the cursor directly to a position in the optimal solution without replaying
+     * the moves in between.
+     *
+     * @param moveNumber the number of optimal moves considered made, from 0 to the solution length
+     */
+    public void seekTo(long moveNumber) {
+        if (moveNumber < 0 || moveNumber > totalMoves) {
+            throw new IndexOutOfBoundsException("Cannot seek to move " + moveNumber + " of " + totalMoves);
+        }
+        this.moveNumber = moveNumber;
+    }
+
+    /**
+     * Returns the move the tutor last accepted from the player, or played itself, as optimal.
+     *
+     * @return the last best move, or null if there is none yet
+     */
+    public Move getLastBestMove() {
+        return lastBestMove;
+    }
+
+    /**
+     * Returns whether the current game starts with every ring on tower 1, so its solution can be
+     * indexed and sought through. This holds for classic games on any number of towers.
+     *
+     * @return {@code true} unless the game is a puzzle
+     */
+    public boolean hasIndexedSolution() {
+        return classicStart;
+    }
+
+    public long getTotalMoves() {
+        return totalMoves;
+    }
+
+    public int getNumRings() {
+        return numRings;
+    }
+
+    public int getTowerCount() {
+        return towerCount;
+    }
+
+    public long getMoveNumber() {
         return moveNumber;
     }
 
@@ -212,24 +496,21 @@ public class Tutor {
 
 
     public boolean movesLeft() {
-        return !(moveNumber == bestMoves.size());
+        return !(moveNumber == totalMoves);
     }
 
 
     /**
      * Returns the singleton instance of the Tutor class.
-     * If the instance does not exist, it is created.
+     * The instance is created on first use, without taking a lock.
      *
      * @return the singleton instance of the Tutor
      */
     public static Tutor getInstance() {
-        if (_instance == null) {
-            _instance = new Tutor();
-        }
-        return _instance;
+        return Holder.INSTANCE;
     }
 
-    public ArrayList<Move> getBestMoves() {
-        return bestMoves;
+    private static final class Holder {
+        static final Tutor INSTANCE = new Tutor(); // Singleton instance of the Tutor
     }
 }
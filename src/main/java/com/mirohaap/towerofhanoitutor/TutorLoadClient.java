@@ -0,0 +1,136 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load generator for {@link TutorServer}. Opens many concurrent connections, plays the optimal
+ * solution on each one move at a time, and reports the p50/p99 round-trip latency between
+ * sending a move and receiving its result.
+ * <p>
+ * Run it with {@code TutorLoadClient [host] [port] [connections] [rings]}; it defaults to
+ * 1000 connections of 10 rings against a local server on {@value TutorServer#DEFAULT_PORT}.
+ * </p>
+ */
+public class TutorLoadClient {
+
+    /**
+     * Runs the load test and prints the latency percentiles.
+     *
+     * @param args Optional host, port, connection count and ring count.
+     * @throws Exception If the server cannot be reached.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : TutorServer.DEFAULT_PORT;
+        int connectionCount = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int rings = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        URI uri = URI.create("ws://" + host + ":" + port + "/?rings=" + rings);
+
+        HttpClient client = HttpClient.newHttpClient();
+        long start = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        try (ExecutorService players = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connectionCount; i++) {
+                results.add(players.submit(() -> play(client, uri, rings)));
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] latencies = results.stream().flatMapToLong(result -> {
+            try {
+                return Arrays.stream(result.get());
+            } catch (Exception e) {
+                throw new IllegalStateException("A connection failed", e);
+            }
+        }).sorted().toArray();
+        System.out.printf("%d connections, %d moves in %.2f s (%.0f moves/s)%n",
+                connectionCount, latencies.length, seconds, latencies.length / seconds);
+        System.out.printf("round trip p50 = %.1f us, p99 = %.1f us, max = %.1f us%n",
+                percentile(latencies, 0.50) / 1e3, percentile(latencies, 0.99) / 1e3, latencies[latencies.length - 1] / 1e3);
+    }
+
+    /**
+     * Plays one optimal game over its own connection.
+     *
+     * @param client The shared HTTP client.
+     * @param uri    The server address.
+     * @param rings  The number of rings to play with.
+     * @return The round-trip time of every move in nanoseconds.
+     */
+    private static long[] play(HttpClient client, URI uri, int rings) {
+        ResultListener listener = new ResultListener();
+        WebSocket webSocket = client.newWebSocketBuilder().buildAsync(uri, listener).join();
+        long[] latencies = new long[(int) OptimalSolution.totalMoves(rings)];
+        byte[] message = new byte[4];
+        message[0] = TutorServer.MOVE;
+        for (int i = 0; i < latencies.length; i++) {
+            Move move = OptimalSolution.moveAt(rings, i);
+            message[1] = (byte) move.getN();
+            message[2] = (byte) move.getFrom();
+            message[3] = (byte) move.getTo();
+            CompletableFuture<Void> result = listener.expectResult();
+            long sent = System.nanoTime();
+            webSocket.sendBinary(ByteBuffer.wrap(message), true).join();
+            result.join();
+            latencies[i] = System.nanoTime() - sent;
+        }
+        webSocket.sendClose(WebSocket.NORMAL_CLOSURE, "").join();
+        return latencies;
+    }
+
+    /**
+     * Returns the value at a percentile of sorted samples.
+     *
+     * @param sorted   The samples in ascending order.
+     * @param fraction The percentile as a fraction, for example 0.99.
+     * @return The sample at that percentile.
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * Completes the pending future whenever a move result arrives. Hints and win messages are ignored.
+     */
+    private static class ResultListener implements WebSocket.Listener {
+        private final AtomicReference<CompletableFuture<Void>> pending = new AtomicReference<>();
+
+        CompletableFuture<Void> expectResult() {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            pending.set(result);
+            return result;
+        }
+
+        @Override
+        public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+            if (data.hasRemaining() && data.get(0) == TutorServer.RESULT) {
+                CompletableFuture<Void> result = pending.getAndSet(null);
+                if (result != null) {
+                    result.complete(null);
+                }
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            CompletableFuture<Void> result = pending.getAndSet(null);
+            if (result != null) {
+                result.completeExceptionally(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded WebSocket server that tutors many browser clients at once. Every connection gets
+ * its own {@link GameSession} and runs on its own virtual thread, so tens of thousands of
+ * mostly idle connections cost little more than their buffers.
+ * <p>
+ * Clients connect to {@code ws://host:port/?rings=N} and exchange binary messages whose first
+ * byte is the message type:
+ * </p>
+ * <ul>
+ *     <li>{@link #MOVE} {@code ring from to}: client submits a move.</li>
+ *     <li>{@link #HINT} (client): asks for the next optimal move.</li>
+ *     <li>{@link #RESULT} {@code applied optimal}: server reports the outcome of a move.</li>
+ *     <li>{@link #HINT} {@code ring from to} (server): the next optimal move, or ring 0 if there is none.
+ *     Sent on request and after every move that was rejected or not optimal.</li>
+ *     <li>{@link #WIN} followed by the move count as a 4-byte big-endian int: the puzzle is solved.</li>
+ * </ul>
+ * Run it with {@code TutorServer [port]}; the default port is {@value #DEFAULT_PORT}.
+ */
+public class TutorServer implements Closeable {
+    public static final int DEFAULT_PORT = 8765;
+    public static final int DEFAULT_RINGS = 6;
+    public static final byte MOVE = 1, HINT = 2, RESULT = 3, WIN = 4;
+
+    private final SessionRegistry sessions = new SessionRegistry();
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final ServerSocket serverSocket;
+
+    /**
+     * Binds the server to a local port. Call {@link #start()} to begin accepting connections.
+     *
+     * @param port The port to listen on, or 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public TutorServer(int port) throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port), 4096);
+    }
+
+    /**
+     * Starts accepting connections on a virtual thread and returns immediately.
+     */
+    public void start() {
+        Thread.ofVirtual().name("tutor-server-accept").start(this::acceptLoop);
+    }
+
+    /**
+     * Accepts connections until the server socket is closed, handing each to its own virtual thread.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            } catch (SocketException e) {
+                // The server socket was closed.
+            } catch (IOException e) {
+                System.out.println("Error accepting tutor connection.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Runs one connection: performs the handshake, then plays a game session until the client leaves.
+     *
+     * @param socket The accepted client socket.
+     */
+    private void serve(Socket socket) {
+        GameSession session = null;
+        try (WebSocketConnection connection = new WebSocketConnection(socket)) {
+            String path = connection.acceptHandshake();
+            if (path == null) {
+                return;
+            }
+            session = sessions.create(parseRingCount(path));
+            TutorConnectionListener listener = new TutorConnectionListener(connection, session);
+            session.addListener(listener);
+
+            byte[] message = new byte[WebSocketConnection.MAX_PAYLOAD];
+            int length;
+            while ((length = connection.readMessage(message)) >= 0) {
+                if (length >= 4 && message[0] == MOVE) {
+                    session.submit(message[1], message[2], message[3]);
+                } else if (length >= 1 && message[0] == HINT) {
+                    session.execute(listener::sendHint);
+                }
+                listener.throwIfFailed();
+                connection.flush();
+            }
+        } catch (IOException e) {
+            // The client went away; there is nobody left to report to.
+        } finally {
+            if (session != null) {
+                sessions.close(session.getId());
+            }
+        }
+    }
+
+    /**
+     * Reads the ring count from the {@code rings} query parameter of the request path.
+     *
+     * @param path The request path, for example {@code /?rings=8}.
+     * @return The requested ring count, or {@link #DEFAULT_RINGS} if absent or invalid.
+     */
+    static int parseRingCount(String path) {
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            for (String parameter : path.substring(query + 1).split("&")) {
+                if (parameter.startsWith("rings=")) {
+                    try {
+                        int rings = Integer.parseInt(parameter.substring("rings=".length()));
+                        if (rings >= 1 && rings <= OptimalSolution.MAX_RINGS) {
+                            return rings;
+                        }
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+        }
+        return DEFAULT_RINGS;
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return The number of open sessions.
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * Stops accepting connections and interrupts the connection threads.
+     *
+     * @throws IOException If the server socket cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    /**
+     * Starts a server and blocks until the JVM is stopped.
+     *
+     * @param args An optional port number.
+     * @throws Exception If the server cannot start.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        TutorServer server = new TutorServer(port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        server.start();
+        System.out.println("Tutor server listening on port " + server.getPort());
+        Thread.currentThread().join();
+    }
+
+    /**
+     * Turns a session's engine events into messages for its client. Events are delivered on the
+     * connection's own thread, which is the only thread submitting to the session, so writes are
+     * never concurrent. Write failures are remembered and rethrown by the read loop.
+     */
+    private static class TutorConnectionListener implements EngineListener {
+        private final WebSocketConnection connection;
+        private final GameSession session;
+        private final byte[] reply = new byte[5];
+        private IOException failure;
+
+        TutorConnectionListener(WebSocketConnection connection, GameSession session) {
+            this.connection = connection;
+            this.session = session;
+        }
+
+        @Override
+        public void moveApplied(int ring, int from, int to, boolean optimal) {
+            send(RESULT, 1, optimal ? 1 : 0);
+            if (!optimal) {
+                sendHint();
+            }
+        }
+
+        @Override
+        public void moveRejected(int ring, int from, int to) {
+            send(RESULT, 0, 0);
+            sendHint();
+        }
+
+        @Override
+        public void gameWon(int validMoveCount) {
+            reply[0] = WIN;
+            reply[1] = (byte) (validMoveCount >>> 24);
+            reply[2] = (byte) (validMoveCount >>> 16);
+            reply[3] = (byte) (validMoveCount >>> 8);
+            reply[4] = (byte) validMoveCount;
+            write(5);
+        }
+
+        /**
+         * Sends the next optimal move. Must run inside a task of the session.
+         */
+        void sendHint() {
+            Move hint = session.getEngine().getHint();
+            if (hint == null) {
+                send(HINT, 0, 0, 0);
+            } else {
+                send(HINT, hint.getN(), hint.getFrom(), hint.getTo());
+            }
+        }
+
+        private void send(byte type, int first, int second) {
+            reply[0] = type;
+            reply[1] = (byte) first;
+            reply[2] = (byte) second;
+            write(3);
+        }
+
+        private void send(byte type, int first, int second, int third) {
+            reply[0] = type;
+            reply[1] = (byte) first;
+            reply[2] = (byte) second;
+            reply[3] = (byte) third;
+            write(4);
+        }
+
+        private void write(int length) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                connection.writeBinary(reply, length);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        void throwIfFailed() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.mirohaap.towerofhanoitutor;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Minimal server side of the WebSocket protocol (RFC 6455), just enough for {@link TutorServer}:
+ * the opening handshake, unfragmented binary messages, ping/pong and close. Messages are small,
+ * so frames are read into a caller-supplied buffer and written without any per-message allocation.
+ */
+class WebSocketConnection implements Closeable {
+    static final int MAX_PAYLOAD = 125;
+    private static final String HANDSHAKE_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    private static final int OPCODE_BINARY = 0x2, OPCODE_CLOSE = 0x8, OPCODE_PING = 0x9, OPCODE_PONG = 0xA;
+    private static final int MAX_LINE_LENGTH = 8192; // Longest handshake line accepted, in bytes
+    private static final int MAX_HEADERS = 64;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+    private final Socket socket;
+    private final InputStream in;
+    private final OutputStream out;
+    private final byte[] header = new byte[2];
+    private final byte[] mask = new byte[4];
+    private final byte[] control = new byte[MAX_PAYLOAD];
+
+    /**
+     * Wraps an accepted socket.
+     *
+     * @param socket The client socket.
+     * @throws IOException If the socket's streams cannot be opened.
+     */
+    WebSocketConnection(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new BufferedInputStream(socket.getInputStream());
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+    }
+
+    /**
+     * Reads the client's HTTP upgrade request and answers it. A request with a line longer than
+     * {@value #MAX_LINE_LENGTH} bytes or more than {@value #MAX_HEADERS} headers is refused, and a
+     * client that takes longer than {@value #HANDSHAKE_TIMEOUT_MILLIS} ms between reads is dropped,
+     * so a slow or oversized request cannot hold a server thread.
+     *
+     * @return The request path, or null if the request was not a WebSocket upgrade.
+     * @throws IOException If the connection fails or times out.
+     */
+    String acceptHandshake() throws IOException {
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        String requestLine = readLine();
+        if (requestLine == null) {
+            return refuseHandshake();
+        }
+        String path = requestLine.split(" ").length > 1 ? requestLine.split(" ")[1] : "/";
+        String key = null;
+        int headers = 0;
+        for (String line = readLine(); line == null || !line.isEmpty(); line = readLine()) {
+            if (line == null || ++headers > MAX_HEADERS) {
+                return refuseHandshake();
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0 && line.substring(0, colon).trim().equalsIgnoreCase("Sec-WebSocket-Key")) {
+                key = line.substring(colon + 1).trim();
+            }
+        }
+        if (key == null) {
+            return refuseHandshake();
+        }
+        String response = "HTTP/1.1 101 Switching Protocols\r\n"
+                + "Upgrade: websocket\r\n"
+                + "Connection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n";
+        out.write(response.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        socket.setSoTimeout(0); // Upgraded clients may stay idle between moves.
+        return path;
+    }
+
+    /**
+     * Answers a handshake that cannot be accepted with {@code 400 Bad Request}.
+     *
+     * @return Always null, for {@link #acceptHandshake()} to return.
+     * @throws IOException If the connection fails.
+     */
+    private String refuseHandshake() throws IOException {
+        out.write("HTTP/1.1 400 Bad Request\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        return null;
+    }
+
+    /**
+     * Reads the next data message, answering pings along the way.
+     *
+     * @param buffer The buffer to read the payload into, at least {@link #MAX_PAYLOAD} bytes long.
+     * @return The payload length, or -1 if the client closed the connection.
+     * @throws IOException If the connection fails or the client breaks the protocol.
+     */
+    int readMessage(byte[] buffer) throws IOException {
+        while (true) {
+            if (in.readNBytes(header, 0, 2) < 2) {
+                return -1;
+            }
+            boolean finalFrame = (header[0] & 0x80) != 0;
+            int opcode = header[0] & 0x0F;
+            boolean masked = (header[1] & 0x80) != 0;
+            int length = header[1] & 0x7F;
+            if (!finalFrame || !masked || length > MAX_PAYLOAD) {
+                // Fragmented, unmasked or oversized frames are never sent by a well-behaved tutor client.
+                writeFrame(OPCODE_CLOSE, control, 0);
+                out.flush();
+                throw new IOException("Unsupported WebSocket frame");
+            }
+            readFully(mask, 4);
+            byte[] payload = opcode == OPCODE_BINARY ? buffer : control;
+            readFully(payload, length);
+            for (int i = 0; i < length; i++) {
+                payload[i] ^= mask[i & 3];
+            }
+
+            switch (opcode) {
+                case OPCODE_BINARY:
+                    return length;
+                case OPCODE_PING:
+                    writeFrame(OPCODE_PONG, control, length);
+                    out.flush();
+                    break;
+                case OPCODE_CLOSE:
+                    writeFrame(OPCODE_CLOSE, control, Math.min(length, 2));
+                    out.flush();
+                    return -1;
+                default:
+                    break; // Text and pong frames are ignored.
+            }
+        }
+    }
+
+    /**
+     * Buffers a binary message. Call {@link #flush()} to send buffered messages.
+     *
+     * @param payload The message bytes.
+     * @param length  The number of bytes to send, at most {@link #MAX_PAYLOAD}.
+     * @throws IOException If the connection fails.
+     */
+    void writeBinary(byte[] payload, int length) throws IOException {
+        writeFrame(OPCODE_BINARY, payload, length);
+    }
+
+    /**
+     * Sends all buffered messages.
+     *
+     * @throws IOException If the connection fails.
+     */
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    private void writeFrame(int opcode, byte[] payload, int length) throws IOException {
+        out.write(0x80 | opcode);
+        out.write(length);
+        out.write(payload, 0, length);
+    }
+
+    private void readFully(byte[] buffer, int length) throws IOException {
+        if (in.readNBytes(buffer, 0, length) < length) {
+            throw new EOFException("Connection closed mid-frame");
+        }
+    }
+
+    /**
+     * Reads one CRLF-terminated line of the HTTP handshake.
+     *
+     * @return The line without its terminator, or null if it is longer than {@value #MAX_LINE_LENGTH} bytes.
+     * @throws IOException If the connection closes before the line ends.
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException("Connection closed during handshake");
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                return null;
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    /**
+     * Computes the Sec-WebSocket-Accept value for a client key.
+     *
+     * @param key The client's Sec-WebSocket-Key.
+     * @return The Base64 SHA-1 digest of the key and the protocol GUID.
+     */
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key + HANDSHAKE_GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is required by every Java platform", e);
+        }
+    }
+}
@@ -28,6 +28,16 @@ public class Window extends Application {
         showStartScreen();
     }
 
+    /**
+     * Called when the application exits. Flushes analytics that are still waiting to be written
+     * and closes the recording of the current game.
+     */
+    @Override
+    public void stop() {
+        AnalyticsUtil.shutdown();
+        Repository.shutdown();
+    }
+
     /**
      * Provides access to the Window instance, following the Singleton pattern to ensure only one instance is used.
      *
@@ -44,7 +54,7 @@ public class Window extends Application {
      */
     public void showStartScreen() throws IOException {
         FXMLLoader fxmlLoader = new FXMLLoader(Window.class.getResource("start-game-view.fxml"));
-        Scene scene = new Scene(fxmlLoader.load(), 164, 150);
+        Scene scene = new Scene(fxmlLoader.load(), 164, 250);
         primaryStage.setTitle("Tower of Hanoi - New Game");
         primaryStage.setScene(scene);
         primaryStage.setResizable(false);
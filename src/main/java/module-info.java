@@ -8,6 +8,7 @@ module com.mirohaap.towerofhanoitutor {
     requires org.kordamp.bootstrapfx.core;
     requires eu.hansolo.tilesfx;
     requires java.desktop;
+    requires java.net.http;
     requires freetts;
     requires javafx.swing;
     requires javafx.media;